@@ -0,0 +1,39 @@
+-- Substring name search: sequential scan vs pg_trgm GIN index at 1M rows.
+-- Runs against a scratch copy of the orders table, so it is safe for the application data:
+--   docker exec -i orders-db psql -U user -d orders < benchmark/name-search.sql
+\timing on
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+DROP TABLE IF EXISTS orders_name_search_bench;
+CREATE TABLE orders_name_search_bench (LIKE orders INCLUDING DEFAULTS);
+
+INSERT INTO orders_name_search_bench (id, version, customer_first_name, customer_last_name, customer_phone,
+                                      delivery_address, pilotes, total_price, created_at, updated_at)
+SELECT i,
+       1,
+       (ARRAY ['Mike', 'John', 'Jane', 'Anna', 'Peter', 'Maria', 'Oliver', 'Sophia'])[1 + i % 8] || md5(i::text),
+       (ARRAY ['Johnson', 'Doe', 'Smith', 'Brown', 'Taylor', 'Wilson', 'Davies', 'Evans'])[1 + i % 7] || md5((i * 31)::text),
+       lpad((i % 100000)::text, 10, '5'),
+       'Street ' || i,
+       5,
+       665,
+       now() - make_interval(secs => i),
+       now() - make_interval(secs => i)
+FROM generate_series(1, 1000000) AS i;
+ANALYZE orders_name_search_bench;
+
+-- LIKE path without trigram indexes
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM orders_name_search_bench WHERE customer_first_name LIKE '%ke4f%' LIMIT 20;
+EXPLAIN (ANALYZE, BUFFERS) SELECT count(*) FROM orders_name_search_bench WHERE customer_first_name LIKE '%ke4f%';
+EXPLAIN (ANALYZE, BUFFERS) SELECT count(*) FROM orders_name_search_bench WHERE customer_last_name LIKE '%son9a%';
+
+CREATE INDEX ON orders_name_search_bench USING gin (customer_first_name gin_trgm_ops);
+CREATE INDEX ON orders_name_search_bench USING gin (customer_last_name gin_trgm_ops);
+ANALYZE orders_name_search_bench;
+
+-- Same queries served by the trigram indexes
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM orders_name_search_bench WHERE customer_first_name LIKE '%ke4f%' LIMIT 20;
+EXPLAIN (ANALYZE, BUFFERS) SELECT count(*) FROM orders_name_search_bench WHERE customer_first_name LIKE '%ke4f%';
+EXPLAIN (ANALYZE, BUFFERS) SELECT count(*) FROM orders_name_search_bench WHERE customer_last_name LIKE '%son9a%';
+
+DROP TABLE orders_name_search_bench;
@@ -0,0 +1,3 @@
+#!/bin/sh
+# Lets the replica stream WAL from the primary, run by the postgres image on the first start
+echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"
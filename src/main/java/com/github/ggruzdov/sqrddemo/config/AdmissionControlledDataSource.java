@@ -0,0 +1,137 @@
+package com.github.ggruzdov.sqrddemo.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lets at most {@code maxConcurrency} connections be borrowed at once and at most {@code maxQueue} callers wait for
+ * one, each no longer than {@code queueTimeout}. Everyone else is rejected with {@link DatabaseBusyException} right
+ * away instead of piling up in the pool, which matters with virtual threads, where every request gets a thread.
+ * A permit is held from borrowing a connection till closing it, so transactions, repositories and JDBC calls
+ * are all covered.
+ */
+public class AdmissionControlledDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    private final int maxQueue;
+    private final long queueTimeoutNanos;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Timer waitTimer;
+    private final Counter rejectedCounter;
+
+    public AdmissionControlledDataSource(
+        DataSource dataSource,
+        int maxConcurrency,
+        int maxQueue,
+        Duration queueTimeout,
+        MeterRegistry meterRegistry
+    ) {
+        super(dataSource);
+        this.permits = new Semaphore(maxConcurrency);
+        this.maxQueue = maxQueue;
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+        this.waitTimer = Timer.builder("db.admission.wait")
+            .description("Time a caller waits to be admitted to the database")
+            .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("db.admission.rejected")
+            .description("Callers rejected because the database is busy")
+            .register(meterRegistry);
+        Gauge.builder("db.admission.waiting", waiting, AtomicInteger::get)
+            .description("Callers waiting to be admitted to the database")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return admitted(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return admitted(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquire() throws SQLException {
+        if (permits.tryAcquire()) {
+            return;
+        }
+
+        if (waiting.incrementAndGet() > maxQueue) {
+            waiting.decrementAndGet();
+            throw reject("Too many requests are waiting for the database, please try again later");
+        }
+        var startedAt = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(queueTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw reject("Database is busy, please try again later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the database", e);
+        } finally {
+            waiting.decrementAndGet();
+            waitTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private DatabaseBusyException reject(String message) {
+        rejectedCounter.increment();
+        return new DatabaseBusyException(message);
+    }
+
+    // The permit goes back when the connection is closed, that is returned to the pool
+    private Connection admitted(Connection connection) {
+        var released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+            getClass().getClassLoader(),
+            new Class<?>[]{Connection.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "close" -> {
+                    try {
+                        connection.close();
+                    } finally {
+                        if (released.compareAndSet(false, true)) {
+                            permits.release();
+                        }
+                    }
+                    yield null;
+                }
+                default -> {
+                    try {
+                        yield method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                }
+            }
+        );
+    }
+}
@@ -0,0 +1,15 @@
+package com.github.ggruzdov.sqrddemo.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+
+/**
+ * Wraps the data source. The wrappers are ordered, so that they nest the same way whichever are enabled, innermost
+ * first: the read replica router right around the pool, the statement statistics proxy and the admission limiter.
+ */
+public interface DataSourcePostProcessor extends BeanPostProcessor, Ordered {
+
+    int READ_REPLICA_ORDER = Ordered.HIGHEST_PRECEDENCE;
+    int STATEMENT_PROXY_ORDER = READ_REPLICA_ORDER + 1;
+    int ADMISSION_ORDER = STATEMENT_PROXY_ORDER + 1;
+}
@@ -0,0 +1,50 @@
+package com.github.ggruzdov.sqrddemo.config;
+
+import com.github.ggruzdov.sqrddemo.profiling.StatementStatisticsListener;
+import com.github.ggruzdov.sqrddemo.profiling.StatementsEndpoint;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the data source in a proxy reporting every executed statement to {@link StatementStatisticsListener}.
+ * The proxy unwraps to the pool, so the pool metrics and the COPY API keep working.
+ */
+@Configuration
+public class DataSourceProxyConfig {
+
+    @Bean
+    public static DataSourcePostProcessor dataSourceProxyPostProcessor(ObjectProvider<StatementStatisticsListener> listener) {
+        return new DataSourcePostProcessor() {
+
+            @Override
+            public int getOrder() {
+                return STATEMENT_PROXY_ORDER;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(beanName, dataSource)
+                        .listener(listener.getObject())
+                        .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public StatementStatisticsListener statementStatisticsListener(SlowQueryLogProperties slowQueryLogProperties) {
+        return new StatementStatisticsListener(slowQueryLogProperties);
+    }
+
+    @Bean
+    public StatementsEndpoint statementsEndpoint(StatementStatisticsListener statementStatisticsListener) {
+        return new StatementsEndpoint(statementStatisticsListener);
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.ggruzdov.sqrddemo.config;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class DatabaseAdmissionConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.db-admission", name = "enabled", havingValue = "true")
+    public static DataSourcePostProcessor databaseAdmissionPostProcessor(
+        ObjectProvider<DatabaseAdmissionProperties> properties,
+        ObjectProvider<MeterRegistry> meterRegistry
+    ) {
+        return new DataSourcePostProcessor() {
+
+            @Override
+            public int getOrder() {
+                return ADMISSION_ORDER;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof AdmissionControlledDataSource) {
+                    return bean;
+                }
+
+                var admission = properties.getObject();
+                return new AdmissionControlledDataSource(
+                    dataSource,
+                    admission.getMaxConcurrency() != null ? admission.getMaxConcurrency() : poolSize(dataSource),
+                    admission.getMaxQueue(),
+                    admission.getQueueTimeout(),
+                    meterRegistry.getObject()
+                );
+            }
+        };
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        var pool = DataSourceUnwrapper.unwrap(dataSource, HikariConfigMXBean.class, HikariDataSource.class);
+        // Hikari only applies its default size when the pool starts, so an explicit size is needed then
+        if (pool == null || pool.getMaximumPoolSize() <= 0) {
+            throw new IllegalStateException(
+                "Either app.db-admission.max-concurrency or spring.datasource.hikari.maximum-pool-size has to be set"
+            );
+        }
+        return pool.getMaximumPoolSize();
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.ggruzdov.sqrddemo.config;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.db-admission")
+public class DatabaseAdmissionProperties {
+
+    private boolean enabled;
+
+    // Connections borrowed at once, defaults to the maximum size of the pool
+    @Positive
+    private Integer maxConcurrency;
+
+    // Callers waiting for a connection, beyond that requests are rejected with 503 right away
+    @NotNull
+    @PositiveOrZero
+    private Integer maxQueue;
+
+    // Longest wait for a connection before the request is rejected with 503
+    @NotNull
+    private Duration queueTimeout;
+}
@@ -0,0 +1,13 @@
+package com.github.ggruzdov.sqrddemo.config;
+
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * Thrown instead of a connection when too many requests wait for the database already.
+ */
+public class DatabaseBusyException extends SQLTransientConnectionException {
+
+    public DatabaseBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,18 @@
+package com.github.ggruzdov.sqrddemo.config;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.export")
+public class ExportProperties {
+
+    // Rows held in memory at once, the driver pulls the next batch from the server-side cursor when they are written
+    @NotNull
+    @Positive
+    private Integer fetchSize;
+}
@@ -1,5 +1,6 @@
 package com.github.ggruzdov.sqrddemo.config;
 
+import com.github.ggruzdov.sqrddemo.request.InvalidRequestException;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -7,14 +8,21 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.persistence.OptimisticLockException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
 import org.springframework.web.method.annotation.HandlerMethodValidationException;
+import org.springframework.web.util.DisconnectedClientHelper;
 
 import java.util.Arrays;
 import java.util.Objects;
@@ -26,7 +34,9 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler({
         MethodArgumentNotValidException.class,
+        WebExchangeBindException.class,
         HandlerMethodValidationException.class,
+        InvalidRequestException.class,
         IllegalStateException.class,
         OptimisticLockException.class,
         BadCredentialsException.class
@@ -50,7 +60,9 @@ public class GlobalExceptionHandler {
     public ResponseEntity<ErrorResponse> handleBadRequestExceptions(Exception ex) {
         log.info(ex.getMessage(), ex);
         var errorResponse = switch (ex) {
-            case MethodArgumentNotValidException exc -> handleMethodArgumentNotValidException(exc);
+            case MethodArgumentNotValidException exc -> handleBindingResult(exc.getBindingResult());
+            // The reactive stack's counterpart
+            case WebExchangeBindException exc -> handleBindingResult(exc.getBindingResult());
             case HandlerMethodValidationException exc -> handleHandlerMethodValidationException(exc);
             default -> new ErrorResponse("Bad request", ex.getLocalizedMessage());
         };
@@ -81,6 +93,61 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(TaskRejectedException.class)
+    @ApiResponse(
+        responseCode = "503",
+        description = "Server is overloaded",
+        content = @Content(
+            mediaType = MediaType.APPLICATION_JSON_VALUE,
+            schema = @Schema(implementation = ErrorResponse.class),
+            examples = @ExampleObject(
+                value = """
+                    {
+                        "error": "Service unavailable",
+                        "message": "Too many concurrent logins, please try again later"
+                    }
+                    """
+            )
+        )
+    )
+    public ResponseEntity<ErrorResponse> handleTaskRejectedException(TaskRejectedException ex) {
+        log.warn(ex.getMessage());
+        var errorResponse = new ErrorResponse("Service unavailable", ex.getLocalizedMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler(QueryTimeoutException.class)
+    @ApiResponse(
+        responseCode = "504",
+        description = "Database didn't respond in time, the change may still be applied",
+        content = @Content(
+            mediaType = MediaType.APPLICATION_JSON_VALUE,
+            schema = @Schema(implementation = ErrorResponse.class),
+            examples = @ExampleObject(
+                value = """
+                    {
+                        "error": "Timeout",
+                        "message": "The order wasn't committed within PT10S, it may still be written"
+                    }
+                    """
+            )
+        )
+    )
+    public ResponseEntity<ErrorResponse> handleQueryTimeoutException(QueryTimeoutException ex) {
+        log.warn(ex.getMessage());
+        var errorResponse = new ErrorResponse("Timeout", ex.getLocalizedMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.GATEWAY_TIMEOUT);
+    }
+
+    // Spring Security wraps exceptions thrown while checking unknown users, rejected hashing included
+    @ExceptionHandler(InternalAuthenticationServiceException.class)
+    public ResponseEntity<ErrorResponse> handleInternalAuthenticationServiceException(InternalAuthenticationServiceException ex) {
+        if (ex.getCause() instanceof TaskRejectedException cause) {
+            return handleTaskRejectedException(cause);
+        }
+        return handleGenericException(ex);
+    }
+
     @ExceptionHandler(Exception.class)
     @ApiResponse(
         responseCode = "500",
@@ -99,13 +166,36 @@ public class GlobalExceptionHandler {
         )
     )
     public ResponseEntity<ErrorResponse> handleGenericException(Exception ex) {
+        // E.g. a streamed export cancelled by the client, there is no one to respond to
+        if (DisconnectedClientHelper.isClientDisconnectedException(ex)) {
+            log.info("Client disconnected: {}", ex.getMessage());
+            return null;
+        }
+        // Thrown while borrowing a connection, so it comes wrapped by the transaction or persistence exceptions
+        var databaseBusy = findCause(ex, DatabaseBusyException.class);
+        if (databaseBusy != null) {
+            log.warn(databaseBusy.getMessage());
+            var errorResponse = new ErrorResponse("Service unavailable", databaseBusy.getLocalizedMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errorResponse);
+        }
         log.error(ex.getMessage(), ex);
         var errorResponse = new ErrorResponse("Internal error", ex.getLocalizedMessage());
         return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
-    private ErrorResponse handleMethodArgumentNotValidException(MethodArgumentNotValidException ex) {
-        var details = ex.getBindingResult()
+    private static <T extends Throwable> T findCause(Throwable ex, Class<T> type) {
+        for (var cause = ex; cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return type.cast(cause);
+            }
+        }
+        return null;
+    }
+
+    private ErrorResponse handleBindingResult(BindingResult bindingResult) {
+        var details = bindingResult
             .getFieldErrors()
             .stream()
             .map(error -> error.getField() + ": " +  error.getDefaultMessage())
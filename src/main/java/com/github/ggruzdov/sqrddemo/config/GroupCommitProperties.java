@@ -0,0 +1,35 @@
+package com.github.ggruzdov.sqrddemo.config;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.group-commit")
+public class GroupCommitProperties {
+
+    // Places single orders through a queue written in batches, one transaction per batch
+    private boolean enabled;
+
+    // Orders waiting to be written, beyond that placing is rejected with 503
+    @NotNull
+    @Positive
+    private Integer queueCapacity;
+
+    @NotNull
+    @Positive
+    private Integer maxBatchSize;
+
+    // How long the writer waits for more orders after the first one of a batch
+    @NotNull
+    private Duration linger;
+
+    // How long a caller waits for the commit of its order, the order may still be written after that
+    @NotNull
+    private Duration commitTimeout;
+}
@@ -0,0 +1,19 @@
+package com.github.ggruzdov.sqrddemo.config;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.operator")
+public class OperatorProperties {
+
+    // Signs in to the actuator endpoints with HTTP Basic, customers can't
+    @NotBlank
+    private String username;
+
+    // Without one there is no operator, and only the health endpoint can be reached
+    private String password;
+}
@@ -0,0 +1,35 @@
+package com.github.ggruzdov.sqrddemo.config;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.order-partitions")
+public class OrderPartitionProperties {
+
+    // Monthly partitions kept created ahead of the current month
+    @NotNull
+    @Positive
+    private Integer premakeMonths;
+
+    // Months kept searchable besides the current one, older partitions are moved to the archive schema,
+    // never when not set
+    @Positive
+    private Integer retentionMonths;
+
+    // Goes into DDL as is, hence a plain identifier
+    @NotBlank
+    @Pattern(regexp = "[a-z_][a-z0-9_]*")
+    private String archiveSchema;
+
+    @NotNull
+    private Duration maintenanceInterval;
+}
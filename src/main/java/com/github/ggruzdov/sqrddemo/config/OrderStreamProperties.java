@@ -0,0 +1,38 @@
+package com.github.ggruzdov.sqrddemo.config;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.order-stream")
+public class OrderStreamProperties {
+
+    // Open streams per node, beyond that subscribing is rejected with 503
+    @NotNull
+    @Positive
+    private Integer maxSubscribers;
+
+    // Batches of events waiting to be sent to a subscriber, one per notification of the database, one that falls further
+    // behind is disconnected
+    @NotNull
+    @Positive
+    private Integer bufferSize;
+
+    // Comment sent to idle streams, so that proxies keep them open and closed ones are noticed
+    @NotNull
+    private Duration heartbeatInterval;
+
+    // Streams are closed after that, clients reconnect
+    @NotNull
+    private Duration timeout;
+
+    // Wait before listening again once the database connection is lost
+    @NotNull
+    private Duration reconnectDelay;
+}
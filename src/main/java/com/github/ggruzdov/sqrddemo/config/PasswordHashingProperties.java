@@ -0,0 +1,37 @@
+package com.github.ggruzdov.sqrddemo.config;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.password-hashing")
+public class PasswordHashingProperties {
+
+    // BCrypt cost factor
+    @NotNull
+    @Min(4)
+    @Max(31)
+    private Integer strength;
+
+    // Defaults to the number of available processors
+    @Positive
+    private Integer threads;
+
+    // Hashing requests waiting for a thread, beyond that logins are rejected with 503
+    @NotNull
+    @Positive
+    private Integer queueCapacity;
+
+    // Re-hashes the password on successful login if it was hashed with a lower strength, unless hashing is busy then
+    private boolean rehashOnLogin;
+
+    public int threadsOrDefault() {
+        return threads != null ? threads : Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.ggruzdov.sqrddemo.config;
+
+import com.github.ggruzdov.sqrddemo.profiling.ProfiledValidator;
+import com.github.ggruzdov.sqrddemo.profiling.RequestProfilingFilter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.Validator;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class ProfilingConfig implements WebMvcConfigurer {
+
+    private final LocalValidatorFactoryBean validator;
+
+    @Bean
+    public FilterRegistrationBean<RequestProfilingFilter> requestProfilingFilter(ProfilingProperties profilingProperties) {
+        var registration = new FilterRegistrationBean<>(new RequestProfilingFilter(profilingProperties.isServerTiming()));
+        // Before Spring Security, so that the session lookup falls into the request
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        return registration;
+    }
+
+    @Override
+    public Validator getValidator() {
+        return new ProfiledValidator(validator);
+    }
+}
@@ -0,0 +1,14 @@
+package com.github.ggruzdov.sqrddemo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.profiling")
+public class ProfilingProperties {
+
+    // Sends the phase durations of each request in the Server-Timing header, responses are buffered then
+    private boolean serverTiming;
+}
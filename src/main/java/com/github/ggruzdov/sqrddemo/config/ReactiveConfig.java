@@ -0,0 +1,149 @@
+package com.github.ggruzdov.sqrddemo.config;
+
+import com.github.ggruzdov.sqrddemo.service.CustomerService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.actuate.autoconfigure.security.reactive.EndpointRequest;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Security and data sources of the reactive stack, see {@code application-reactive.yml}. The customers are still
+ * loaded with JPA, which blocks, so lookups and password checks run on the bounded elastic scheduler rather than
+ * the event loop.
+ */
+@Configuration
+@EnableWebFluxSecurity
+@Profile("reactive")
+public class ReactiveConfig {
+
+    // Spring Boot backs off the JDBC data source once there is an R2DBC connection factory, while Flyway, the scheduled
+    // jobs and the customers still need it, so it's declared the way the auto-configuration would
+    @Bean
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties dataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder()
+            .type(HikariDataSource.class)
+            .build();
+    }
+
+    @Bean
+    public JdbcConnectionDetails jdbcConnectionDetails(DataSourceProperties dataSourceProperties) {
+        return new JdbcConnectionDetails() {
+
+            @Override
+            public String getUsername() {
+                return dataSourceProperties.determineUsername();
+            }
+
+            @Override
+            public String getPassword() {
+                return dataSourceProperties.determinePassword();
+            }
+
+            @Override
+            public String getJdbcUrl() {
+                return dataSourceProperties.determineUrl();
+            }
+        };
+    }
+
+    @Bean
+    public SessionTokens sessionTokens(SessionProperties sessionProperties) {
+        if (sessionProperties.getMode() != SessionProperties.Mode.TOKEN) {
+            throw new IllegalStateException("The reactive stack has no HTTP session, app.session.mode must be token");
+        }
+        return new SessionTokens(sessionProperties.getToken());
+    }
+
+    @Bean
+    public ReactiveTokenSecurityContextRepository reactiveSecurityContextRepository(SessionTokens sessionTokens) {
+        return new ReactiveTokenSecurityContextRepository(sessionTokens);
+    }
+
+    // See SecurityConfig.actuatorFilterChain
+    @Bean
+    @Order(1)
+    public SecurityWebFilterChain reactiveActuatorFilterChain(
+        ServerHttpSecurity http,
+        OperatorProperties operatorProperties,
+        PasswordEncoder passwordEncoder
+    ) {
+        var operator = SecurityConfig.operator(operatorProperties, passwordEncoder);
+        var authenticationManager = new UserDetailsRepositoryReactiveAuthenticationManager(username -> Mono.justOrEmpty(operator)
+            .filter(user -> user.getUsername().equals(username))
+            .map(user -> User.withUserDetails(user).build()));
+        authenticationManager.setPasswordEncoder(passwordEncoder);
+
+        return http
+            .securityMatcher(EndpointRequest.toAnyEndpoint())
+            .csrf(ServerHttpSecurity.CsrfSpec::disable)
+            .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+            .logout(ServerHttpSecurity.LogoutSpec::disable)
+            .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+            .httpBasic(basic -> basic.authenticationManager(authenticationManager))
+            .authorizeExchange(auth -> auth
+                .matchers(EndpointRequest.to("health")).permitAll()
+                .anyExchange().hasRole(SecurityConfig.OPERATOR_ROLE)
+            )
+            .build();
+    }
+
+    @Bean
+    @Order(2)
+    public SecurityWebFilterChain reactiveFilterChain(
+        ServerHttpSecurity http,
+        ReactiveTokenSecurityContextRepository securityContextRepository
+    ) {
+        return http
+            .csrf(ServerHttpSecurity.CsrfSpec::disable)
+            .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+            .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+            .logout(ServerHttpSecurity.LogoutSpec::disable)
+            .securityContextRepository(securityContextRepository)
+            .exceptionHandling(exception -> exception.authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.UNAUTHORIZED)))
+            .authorizeExchange(auth -> auth
+                .pathMatchers("/orders/search/**").authenticated()
+                .anyExchange().permitAll()
+            )
+            .build();
+    }
+
+    @Bean
+    public ReactiveAuthenticationManager reactiveAuthenticationManager(
+        CustomerService customerService,
+        PasswordEncoder passwordEncoder
+    ) {
+        var authenticationManager = new UserDetailsRepositoryReactiveAuthenticationManager(phone ->
+            Mono.fromCallable(() -> customerService.loadUserByUsername(phone))
+                .subscribeOn(Schedulers.boundedElastic())
+                // An empty user is turned into bad credentials, same as an unknown one on the servlet stack
+                .onErrorResume(UsernameNotFoundException.class, e -> Mono.empty())
+        );
+        authenticationManager.setPasswordEncoder(passwordEncoder);
+        return authenticationManager;
+    }
+}
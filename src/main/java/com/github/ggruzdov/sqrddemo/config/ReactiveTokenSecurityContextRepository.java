@@ -0,0 +1,45 @@
+package com.github.ggruzdov.sqrddemo.config;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.server.context.ServerSecurityContextRepository;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Reactive counterpart of {@link TokenSecurityContextRepository}, reading and writing the same signed cookie.
+ */
+public class ReactiveTokenSecurityContextRepository implements ServerSecurityContextRepository {
+
+    private final SessionTokens tokens;
+
+    public ReactiveTokenSecurityContextRepository(SessionTokens tokens) {
+        this.tokens = tokens;
+    }
+
+    @Override
+    public Mono<Void> save(ServerWebExchange exchange, SecurityContext context) {
+        var authentication = context != null ? context.getAuthentication() : null;
+        var cookie = authentication != null && authentication.isAuthenticated()
+            ? tokens.issue(authentication.getName())
+            : tokens.clear();
+        exchange.getResponse().addCookie(cookie);
+        return Mono.empty();
+    }
+
+    @Override
+    public Mono<SecurityContext> load(ServerWebExchange exchange) {
+        var cookie = exchange.getRequest().getCookies().getFirst(tokens.cookieName());
+        if (cookie == null) {
+            return Mono.empty();
+        }
+        var phone = tokens.verify(cookie.getValue());
+        if (phone == null) {
+            return Mono.empty();
+        }
+        return Mono.just(new SecurityContextImpl(UsernamePasswordAuthenticationToken.authenticated(phone, null, List.of())));
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.ggruzdov.sqrddemo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+@Configuration
+@ConditionalOnProperty(prefix = "app.read-replicas", name = "enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    public ReadReplicaRouter readReplicaRouter(
+        ReadReplicaProperties properties,
+        DataSourceProperties dataSourceProperties,
+        ReadYourWrites readYourWrites,
+        MeterRegistry meterRegistry
+    ) {
+        return new ReadReplicaRouter(properties, dataSourceProperties, readYourWrites, meterRegistry);
+    }
+
+    /**
+     * Routes right around the pool, so that the statement statistics and the admission limiter cover
+     * the replica connections as well.
+     */
+    @Bean
+    public static DataSourcePostProcessor readReplicaPostProcessor(ObjectProvider<ReadReplicaRouter> router) {
+        return new DataSourcePostProcessor() {
+
+            @Override
+            public int getOrder() {
+                return READ_REPLICA_ORDER;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof LazyConnectionDataSourceProxy)) {
+                    return router.getObject().route(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+}
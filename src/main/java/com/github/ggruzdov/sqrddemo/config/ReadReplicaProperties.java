@@ -0,0 +1,36 @@
+package com.github.ggruzdov.sqrddemo.config;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import java.util.List;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.read-replicas")
+public class ReadReplicaProperties {
+
+    private boolean enabled;
+
+    // JDBC URLs of the replicas, connected to with the credentials of spring.datasource
+    @NotNull
+    private List<String> urls = List.of();
+
+    @Positive
+    private Integer maximumPoolSize;
+
+    // Longest wait for a replica connection, also bounds a health check of a replica that doesn't respond
+    @NotNull
+    private Duration connectionTimeout;
+
+    @NotNull
+    private Duration healthCheckInterval;
+
+    // Oldest state of the data a read-only transaction may see, replicas lagging further behind are skipped
+    @NotNull
+    private Duration maxStaleness;
+}
@@ -0,0 +1,239 @@
+package com.github.ggruzdov.sqrddemo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Sends read-only transactions to the replicas in turn and everything else to the primary. The connection is only
+ * borrowed at the first statement, when the transaction has marked it read-only, see {@link LazyConnectionDataSourceProxy}.
+ * <p>
+ * A health check tells how recent the data of every replica is: up to the time of the check if it has replayed
+ * the WAL the primary had written by then, up to its last replayed commit otherwise. Reads skip replicas that are
+ * down or staler than {@code max-staleness}, and, for the signed-in customer, those that haven't replayed their last
+ * write yet, see {@link ReadYourWrites}. With no replica left they go to the primary.
+ */
+@Slf4j
+public class ReadReplicaRouter implements AutoCloseable {
+
+    private static final String PRIMARY_POSITION = "SELECT pg_current_wal_lsn()::text";
+    // A server that isn't replaying WAL is checked by its own position, so a second database
+    // of the primary server can stand in for a replica locally
+    private static final String REPLICA_STATE = """
+        SELECT CASE WHEN pg_is_in_recovery() THEN pg_last_wal_replay_lsn() ELSE pg_current_wal_lsn() END >= ?::pg_lsn
+                   AS caught_up,
+               pg_last_xact_replay_timestamp() AS replayed_at
+        """;
+
+    private final List<Replica> replicas;
+    private final String username;
+    private final String password;
+    private final Duration maxStaleness;
+    private final Duration healthCheckInterval;
+    private final ReadYourWrites readYourWrites;
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService healthChecks = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("replica-health").daemon().factory()
+    );
+    private volatile JdbcTemplate primary;
+
+    public ReadReplicaRouter(
+        ReadReplicaProperties properties,
+        DataSourceProperties dataSourceProperties,
+        ReadYourWrites readYourWrites,
+        MeterRegistry meterRegistry
+    ) {
+        this.maxStaleness = properties.getMaxStaleness();
+        this.healthCheckInterval = properties.getHealthCheckInterval();
+        this.readYourWrites = readYourWrites;
+        this.meterRegistry = meterRegistry;
+        this.username = dataSourceProperties.determineUsername();
+        this.password = dataSourceProperties.determinePassword();
+        this.replicas = IntStream.range(0, properties.getUrls().size())
+            .mapToObj(i -> new Replica("replica-" + (i + 1), pool(i, properties, dataSourceProperties)))
+            .toList();
+
+        for (var replica : replicas) {
+            Gauge.builder("db.replica.lag", replica, Replica::lagSeconds)
+                .description("How far behind the primary the data of the replica was at the last health check, NaN when down")
+                .baseUnit("seconds")
+                .tag("replica", replica.name)
+                .register(meterRegistry);
+        }
+    }
+
+    private static HikariDataSource pool(int index, ReadReplicaProperties properties, DataSourceProperties dataSourceProperties) {
+        var pool = new HikariDataSource();
+        pool.setPoolName("replica-" + (index + 1));
+        pool.setJdbcUrl(properties.getUrls().get(index));
+        pool.setUsername(dataSourceProperties.determineUsername());
+        pool.setPassword(dataSourceProperties.determinePassword());
+        pool.setReadOnly(true);
+        pool.setConnectionTimeout(properties.getConnectionTimeout().toMillis());
+        // A replica that is down at startup is left to the health checks
+        pool.setInitializationFailTimeout(-1);
+        if (properties.getMaximumPoolSize() != null) {
+            pool.setMaximumPoolSize(properties.getMaximumPoolSize());
+        }
+        return pool;
+    }
+
+    /**
+     * Wraps the primary data source, so that read-only transactions borrow replica connections, and starts
+     * the health checks of the replicas against it.
+     */
+    public DataSource route(DataSource primaryDataSource) {
+        this.primary = new JdbcTemplate(primaryDataSource);
+        healthChecks.scheduleWithFixedDelay(
+            this::checkHealth, 0, healthCheckInterval.toMillis(), TimeUnit.MILLISECONDS
+        );
+
+        var proxy = new LazyConnectionDataSourceProxy(primaryDataSource);
+        proxy.setReadOnlyDataSource(new ReadOnlyDataSource(primaryDataSource));
+        return proxy;
+    }
+
+    /**
+     * Checks how recent the data of every replica is, called on a schedule.
+     */
+    public synchronized void checkHealth() {
+        var checkedAt = Instant.now();
+        String primaryPosition;
+        try {
+            primaryPosition = primary.queryForObject(PRIMARY_POSITION, String.class);
+        } catch (RuntimeException e) {
+            // Without the position of the primary nothing can be told, the replicas keep their state
+            log.warn("Failed to read the WAL position of the primary: {}", e.getMessage());
+            return;
+        }
+
+        for (var replica : replicas) {
+            try {
+                replica.consistentUpTo = new JdbcTemplate(replica.pool).queryForObject(REPLICA_STATE, (rs, rowNum) -> {
+                    if (rs.getBoolean("caught_up")) {
+                        return checkedAt;
+                    }
+                    Timestamp replayedAt = rs.getTimestamp("replayed_at");
+                    return replayedAt != null ? replayedAt.toInstant() : null;
+                }, primaryPosition);
+                replica.checkedAt = checkedAt;
+            } catch (RuntimeException e) {
+                if (replica.consistentUpTo != null) {
+                    log.warn("Replica {} is down: {}", replica.name, e.getMessage());
+                }
+                replica.consistentUpTo = null;
+            }
+        }
+    }
+
+    private Connection replicaConnection(PrimaryConnection primaryConnection) throws SQLException {
+        var required = Instant.now().minus(maxStaleness);
+        var lastWrite = readYourWrites.lastWriteOfCurrentCustomer();
+        if (lastWrite != null && lastWrite.isAfter(required)) {
+            required = lastWrite;
+        }
+
+        var start = next.getAndIncrement();
+        for (int i = 0; i < replicas.size(); i++) {
+            var replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+            if (replica.isConsistentUpTo(required)) {
+                try {
+                    var connection = replica.pool.getConnection();
+                    countRead(replica.name);
+                    return connection;
+                } catch (SQLException e) {
+                    log.warn("Replica {} is down: {}", replica.name, e.getMessage());
+                    replica.consistentUpTo = null;
+                }
+            }
+        }
+
+        countRead("primary");
+        return primaryConnection.get();
+    }
+
+    private void countRead(String target) {
+        meterRegistry.counter("db.read.routed", "target", target).increment();
+    }
+
+    @Override
+    public void close() {
+        healthChecks.shutdownNow();
+        replicas.forEach(replica -> replica.pool.close());
+    }
+
+    private static final class Replica {
+
+        private final String name;
+        private final HikariDataSource pool;
+        // Commits up to that time are visible on the replica, null when it is down or not checked yet
+        private volatile Instant consistentUpTo;
+        private volatile Instant checkedAt;
+
+        Replica(String name, HikariDataSource pool) {
+            this.name = name;
+            this.pool = pool;
+        }
+
+        boolean isConsistentUpTo(Instant required) {
+            var upTo = consistentUpTo;
+            return upTo != null && !upTo.isBefore(required);
+        }
+
+        double lagSeconds() {
+            var upTo = consistentUpTo;
+            var at = checkedAt;
+            return upTo != null && at != null ? Duration.between(upTo, at).toMillis() / 1e3 : Double.NaN;
+        }
+    }
+
+    private final class ReadOnlyDataSource extends AbstractDataSource {
+
+        private final DataSource primaryDataSource;
+
+        ReadOnlyDataSource(DataSource primaryDataSource) {
+            this.primaryDataSource = primaryDataSource;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return replicaConnection(primaryDataSource::getConnection);
+        }
+
+        // The replica pools only hold connections of the configured user, others read from the primary
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            if (Objects.equals(username, ReadReplicaRouter.this.username) && Objects.equals(password, ReadReplicaRouter.this.password)) {
+                return replicaConnection(primaryDataSource::getConnection);
+            }
+            countRead("primary");
+            return primaryDataSource.getConnection(username, password);
+        }
+    }
+
+    @FunctionalInterface
+    private interface PrimaryConnection {
+
+        Connection get() throws SQLException;
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.ggruzdov.sqrddemo.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Remembers when orders of each phone were last written, so that the customer signed in with that phone reads
+ * from a replica only once it has replayed the write, see {@link ReadReplicaRouter}. A write is forgotten after
+ * the maximum staleness, by then no replica serving reads lags behind it.
+ */
+@Component
+public class ReadYourWrites {
+
+    private final boolean enabled;
+    private final Cache<String, Instant> lastWrites;
+
+    public ReadYourWrites(ReadReplicaProperties properties) {
+        this.enabled = properties.isEnabled();
+        this.lastWrites = Caffeine.newBuilder()
+            .expireAfterWrite(properties.getMaxStaleness())
+            .build();
+    }
+
+    /**
+     * Records a write of orders of the phones, once the current transaction commits if there is one.
+     */
+    public void record(Set<String> phones) {
+        if (!enabled) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recordNow(phones);
+                }
+            });
+        } else {
+            recordNow(phones);
+        }
+    }
+
+    private void recordNow(Set<String> phones) {
+        var now = Instant.now();
+        phones.forEach(phone -> lastWrites.put(phone, now));
+    }
+
+    /**
+     * Time of the last write of orders of the signed-in customer, {@code null} if there is none recent.
+     */
+    public Instant lastWriteOfCurrentCustomer() {
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return lastWrites.getIfPresent(authentication.getName());
+    }
+}
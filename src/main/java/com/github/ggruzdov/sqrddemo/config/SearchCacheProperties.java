@@ -0,0 +1,25 @@
+package com.github.ggruzdov.sqrddemo.config;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.search-cache")
+public class SearchCacheProperties {
+
+    private boolean enabled;
+
+    @NotNull
+    @Positive
+    private Long maximumSize;
+
+    // Bounds staleness for writes this node doesn't see, e.g. ones made by other nodes
+    @NotNull
+    private Duration ttl;
+}
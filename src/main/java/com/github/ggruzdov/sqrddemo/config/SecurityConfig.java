@@ -1,31 +1,91 @@
 package com.github.ggruzdov.sqrddemo.config;
 
-import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import com.github.ggruzdov.sqrddemo.profiling.ProfiledSecurityContextRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
 import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.util.StringUtils;
+
+import java.util.Optional;
 
 @Configuration
-@EnableConfigurationProperties(AppProperties.class)
 public class SecurityConfig {
 
+    static final String OPERATOR_ROLE = "OPERATOR";
+
+    /**
+     * The actuator endpoints other than health show statements and metrics and can reset them, so only the operator
+     * can reach them, with HTTP Basic on every request. The sessions of customers don't count there.
+     */
+    @Bean
+    @Order(1)
+    @Profile("!reactive")
+    public SecurityFilterChain actuatorFilterChain(
+        HttpSecurity http,
+        OperatorProperties operatorProperties,
+        PasswordEncoder passwordEncoder
+    ) throws Exception {
+        var operators = new InMemoryUserDetailsManager();
+        operator(operatorProperties, passwordEncoder).ifPresent(operators::createUser);
+        var authenticationProvider = new DaoAuthenticationProvider(passwordEncoder);
+        authenticationProvider.setUserDetailsService(operators);
+
+        http
+            .securityMatcher(EndpointRequest.toAnyEndpoint())
+            .csrf(AbstractHttpConfigurer::disable)
+            .securityContext(context -> context.securityContextRepository(new RequestAttributeSecurityContextRepository()))
+            .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .authenticationManager(new ProviderManager(authenticationProvider))
+            .authorizeHttpRequests(auth -> auth
+                .requestMatchers(EndpointRequest.to("health")).permitAll()
+                .anyRequest().hasRole(OPERATOR_ROLE)
+            )
+            .httpBasic(Customizer.withDefaults())
+            .formLogin(AbstractHttpConfigurer::disable);
+
+        return http.build();
+    }
+
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    @Profile("!reactive")
+    public SecurityFilterChain filterChain(
+        HttpSecurity http,
+        SecurityContextRepository securityContextRepository,
+        SessionProperties sessionProperties
+    ) throws Exception {
+        var sessionCreationPolicy = switch (sessionProperties.getMode()) {
+            case HTTP_SESSION -> SessionCreationPolicy.IF_REQUIRED;
+            case TOKEN -> SessionCreationPolicy.STATELESS;
+        };
+
         http
             .csrf(AbstractHttpConfigurer::disable)
+            .securityContext(context -> context.securityContextRepository(securityContextRepository))
+            .sessionManagement(session -> session.sessionCreationPolicy(sessionCreationPolicy))
             .exceptionHandling(exception -> exception.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
             .authorizeHttpRequests(auth -> auth
-                .requestMatchers("/orders/search").authenticated()
+                .requestMatchers("/orders/search/**", "/orders/export", "/orders/stream").authenticated()
                 .anyRequest().permitAll()
             )
             .formLogin(AbstractHttpConfigurer::disable);
@@ -34,17 +94,33 @@ public class SecurityConfig {
     }
 
     @Bean
+    @Profile("!reactive")
     public AuthenticationManager authenticationManager(AuthenticationConfiguration authConfig) throws Exception {
         return authConfig.getAuthenticationManager();
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(PasswordHashingProperties passwordHashingProperties, MeterRegistry meterRegistry) {
+        return new OffloadedPasswordEncoder(passwordHashingProperties, meterRegistry);
     }
 
     @Bean
-    public SecurityContextRepository securityContextRepository() {
-        return new HttpSessionSecurityContextRepository();
+    @Profile("!reactive")
+    public SecurityContextRepository securityContextRepository(SessionProperties sessionProperties) {
+        var repository = switch (sessionProperties.getMode()) {
+            case HTTP_SESSION -> new HttpSessionSecurityContextRepository();
+            case TOKEN -> new TokenSecurityContextRepository(sessionProperties.getToken());
+        };
+        return new ProfiledSecurityContextRepository(repository);
+    }
+
+    static Optional<UserDetails> operator(OperatorProperties operatorProperties, PasswordEncoder passwordEncoder) {
+        if (!StringUtils.hasText(operatorProperties.getPassword())) {
+            return Optional.empty();
+        }
+        return Optional.of(User.withUsername(operatorProperties.getUsername())
+            .password(passwordEncoder.encode(operatorProperties.getPassword()))
+            .roles(OPERATOR_ROLE)
+            .build());
     }
 }
@@ -0,0 +1,45 @@
+package com.github.ggruzdov.sqrddemo.config;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.session")
+public class SessionProperties {
+
+    @NotNull
+    private Mode mode;
+
+    @Valid
+    @NotNull
+    private Token token;
+
+    public enum Mode {
+        // Security context is kept in the HttpSession of the node
+        HTTP_SESSION,
+        // Security context is carried by a signed cookie, no server-side state
+        TOKEN
+    }
+
+    @Data
+    public static class Token {
+
+        @NotBlank
+        private String cookieName;
+
+        // HMAC-SHA256 key, at least 32 bytes, required in token mode
+        private String secret;
+
+        @NotNull
+        private Duration ttl;
+
+        private boolean secureCookie;
+    }
+}
@@ -0,0 +1,112 @@
+package com.github.ggruzdov.sqrddemo.config;
+
+import org.springframework.http.ResponseCookie;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Signed session tokens carrying the authenticated phone and an expiry, so that any node can authenticate a request
+ * without a server-side session. The token is {@code base64url(phone|expiresAtEpochSecond).base64url(hmac)} and
+ * travels in a cookie, the same for the servlet and the reactive stack.
+ */
+public class SessionTokens {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int MIN_SECRET_LENGTH = 32;
+    private static final String SEPARATOR = "|";
+
+    private final String cookieName;
+    private final SecretKeySpec key;
+    private final Duration ttl;
+    private final boolean secureCookie;
+
+    public SessionTokens(SessionProperties.Token properties) {
+        if (properties.getSecret() == null || properties.getSecret().getBytes(StandardCharsets.UTF_8).length < MIN_SECRET_LENGTH) {
+            throw new IllegalStateException("app.session.token.secret must be at least " + MIN_SECRET_LENGTH + " bytes long");
+        }
+        this.cookieName = properties.getCookieName();
+        this.key = new SecretKeySpec(properties.getSecret().getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+        this.ttl = properties.getTtl();
+        this.secureCookie = properties.isSecureCookie();
+    }
+
+    public String cookieName() {
+        return cookieName;
+    }
+
+    /**
+     * Cookie of a fresh token of the phone.
+     */
+    public ResponseCookie issue(String phone) {
+        var expiresAt = Instant.now().plus(ttl).getEpochSecond();
+        var payload = phone + SEPARATOR + expiresAt;
+        var token = encode(payload.getBytes(StandardCharsets.UTF_8)) + "." + encode(sign(payload));
+        return cookie(token, ttl);
+    }
+
+    /**
+     * Cookie removing the token from the client.
+     */
+    public ResponseCookie clear() {
+        return cookie("", Duration.ZERO);
+    }
+
+    /**
+     * The phone of the token, null if the token is malformed, forged or expired.
+     */
+    public String verify(String token) {
+        var dot = token.indexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+
+        try {
+            var payload = new String(Base64.getUrlDecoder().decode(token.substring(0, dot)), StandardCharsets.UTF_8);
+            var signature = Base64.getUrlDecoder().decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(sign(payload), signature)) {
+                return null;
+            }
+
+            var separator = payload.lastIndexOf(SEPARATOR);
+            var expiresAt = Long.parseLong(payload.substring(separator + 1));
+            if (Instant.now().getEpochSecond() >= expiresAt) {
+                return null;
+            }
+            return payload.substring(0, separator);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(String payload) {
+        try {
+            // Mac instances aren't thread-safe, creating one is cheap compared to the request
+            var mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to sign session token", e);
+        }
+    }
+
+    private ResponseCookie cookie(String value, Duration maxAge) {
+        return ResponseCookie.from(cookieName, value)
+            .path("/")
+            .httpOnly(true)
+            .secure(secureCookie)
+            .sameSite("Lax")
+            .maxAge(maxAge)
+            .build();
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,30 @@
+package com.github.ggruzdov.sqrddemo.config;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.slow-query-log")
+public class SlowQueryLogProperties {
+
+    // Statements running at least this long are logged
+    @NotNull
+    private Duration threshold;
+
+    // Share of the slow statements logged, 0 turns the log off while statistics are still collected
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    private double sampleRate;
+
+    // Distinct statements tracked in the statistics, new ones beyond it aren't
+    @Positive
+    private int maxStatements;
+}
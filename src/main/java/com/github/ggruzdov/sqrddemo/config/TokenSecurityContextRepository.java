@@ -0,0 +1,98 @@
+package com.github.ggruzdov.sqrddemo.config;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.DeferredSecurityContext;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextHolderStrategy;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
+
+import java.util.List;
+
+/**
+ * Stateless security context repository keeping the authenticated phone and an expiry in an HMAC-signed cookie,
+ * so that any node can authenticate a request without a server-side session, see {@link SessionTokens}.
+ */
+public class TokenSecurityContextRepository implements SecurityContextRepository {
+
+    private final SecurityContextHolderStrategy securityContextHolderStrategy = SecurityContextHolder.getContextHolderStrategy();
+    private final SessionTokens tokens;
+
+    public TokenSecurityContextRepository(SessionProperties.Token properties) {
+        this.tokens = new SessionTokens(properties);
+    }
+
+    @Override
+    public DeferredSecurityContext loadDeferredContext(HttpServletRequest request) {
+        return new DeferredSecurityContext() {
+
+            private SecurityContext context;
+
+            @Override
+            public SecurityContext get() {
+                if (context == null) {
+                    context = readContext(request);
+                }
+                return context;
+            }
+
+            @Override
+            public boolean isGenerated() {
+                return get().getAuthentication() == null;
+            }
+        };
+    }
+
+    @Override
+    @Deprecated
+    public SecurityContext loadContext(HttpRequestResponseHolder requestResponseHolder) {
+        return readContext(requestResponseHolder.getRequest());
+    }
+
+    @Override
+    public void saveContext(SecurityContext context, HttpServletRequest request, HttpServletResponse response) {
+        var authentication = context.getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            response.addHeader(HttpHeaders.SET_COOKIE, tokens.clear().toString());
+            return;
+        }
+        response.addHeader(HttpHeaders.SET_COOKIE, tokens.issue(authentication.getName()).toString());
+    }
+
+    @Override
+    public boolean containsContext(HttpServletRequest request) {
+        return readPhone(request) != null;
+    }
+
+    private SecurityContext readContext(HttpServletRequest request) {
+        var context = securityContextHolderStrategy.createEmptyContext();
+        var phone = readPhone(request);
+        if (phone != null) {
+            context.setAuthentication(UsernamePasswordAuthenticationToken.authenticated(phone, null, List.of()));
+        }
+        return context;
+    }
+
+    private String readPhone(HttpServletRequest request) {
+        var token = readCookie(request);
+        return token != null ? tokens.verify(token) : null;
+    }
+
+    private String readCookie(HttpServletRequest request) {
+        var cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (tokens.cookieName().equals(cookie.getName())) {
+                return cookie.getValue();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.ggruzdov.sqrddemo.config;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.user-cache")
+public class UserCacheProperties {
+
+    @NotNull
+    @Positive
+    private Long maximumSize;
+
+    @NotNull
+    private Duration ttl;
+
+    // Unknown phones are cached too, so that login attempts against them don't hit the database
+    @NotNull
+    private Duration negativeTtl;
+}
@@ -1,6 +1,7 @@
 package com.github.ggruzdov.sqrddemo.controller;
 
 import com.github.ggruzdov.sqrddemo.request.LoginRequest;
+import com.github.ggruzdov.sqrddemo.service.CustomerService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,6 +9,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -21,6 +23,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 @Slf4j
 @RestController
+@Profile("!reactive")
 @RequiredArgsConstructor
 @RequestMapping("/auth")
 @Tag(name = "Auth series", description = "API endpoints for customer authentication")
@@ -28,8 +31,9 @@ public class AuthController {
 
     private final AuthenticationManager authenticationManager;
     private final SecurityContextRepository securityContextRepository;
+    private final CustomerService customerService;
 
-    @Operation(summary = "Session-based user authentication with phone and password")
+    @Operation(summary = "Session or token-based user authentication with phone and password")
     @PostMapping("/login")
     public void login(@RequestBody @Valid LoginRequest loginRequest, HttpServletRequest request, HttpServletResponse response) {
         log.info("Try to login user {}", loginRequest.phone());
@@ -39,6 +43,7 @@ public class AuthController {
                 loginRequest.password()
             )
         );
+        customerService.rehashIfNecessary(loginRequest.phone(), loginRequest.password());
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
         securityContextRepository.saveContext(SecurityContextHolder.getContext(), request, response);
@@ -49,7 +54,9 @@ public class AuthController {
     public void logout(HttpServletRequest request, HttpServletResponse response) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth != null) {
-            new SecurityContextLogoutHandler().logout(request, response, auth);
+            var logoutHandler = new SecurityContextLogoutHandler();
+            logoutHandler.setSecurityContextRepository(securityContextRepository);
+            logoutHandler.logout(request, response, auth);
         }
     }
 }
\ No newline at end of file
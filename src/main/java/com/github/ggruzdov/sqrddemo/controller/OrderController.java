@@ -1,33 +1,57 @@
 package com.github.ggruzdov.sqrddemo.controller;
 
+import com.github.ggruzdov.sqrddemo.request.CountMode;
+import com.github.ggruzdov.sqrddemo.request.ExportFormat;
 import com.github.ggruzdov.sqrddemo.request.PlaceOrderRequest;
 import com.github.ggruzdov.sqrddemo.request.SearchOrderRequest;
 import com.github.ggruzdov.sqrddemo.request.UpdateOrderRequest;
+import com.github.ggruzdov.sqrddemo.response.CursorPage;
 import com.github.ggruzdov.sqrddemo.response.PlaceOrderResponse;
 import com.github.ggruzdov.sqrddemo.response.SearchOrderResponse;
+import com.github.ggruzdov.sqrddemo.response.SearchPage;
+import com.github.ggruzdov.sqrddemo.response.UpdateOrderResponse;
+import com.github.ggruzdov.sqrddemo.service.OrderExportService;
 import com.github.ggruzdov.sqrddemo.service.OrderService;
+import com.github.ggruzdov.sqrddemo.service.OrderStreamBroadcaster;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.web.PagedModel;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 
 @Slf4j
 @RestController
+@Profile("!reactive")
 @RequiredArgsConstructor
 @RequestMapping("/orders")
 @Tag(name = "Order management series", description = "API endpoints for managing orders")
 public class OrderController {
 
+    private static final int MAX_BATCH_SIZE = 1000;
+
     private final OrderService orderService;
+    private final OrderExportService orderExportService;
+    private final OrderStreamBroadcaster orderStreamBroadcaster;
 
     @Operation(
         summary = "Place a new order",
@@ -41,23 +65,90 @@ public class OrderController {
         return new PlaceOrderResponse(order.getId());
     }
 
+    @Operation(
+        summary = "Place several orders at once",
+        description = "Validates all orders and creates them in a single transaction, ids are returned in the request order"
+    )
+    @PostMapping("/batch")
+    public List<PlaceOrderResponse> placeOrders(
+        @RequestBody @NotEmpty @Size(max = MAX_BATCH_SIZE) List<@Valid PlaceOrderRequest> requests
+    ) {
+        log.info("Placing {} orders", requests.size());
+        return orderService.placeOrders(requests)
+            .stream()
+            .map(order -> new PlaceOrderResponse(order.getId()))
+            .toList();
+    }
+
     @Operation(
         summary = "Update existing order",
-        description = "Modifies an existing order within the allowed time window"
+        description = "Modifies an existing order within the allowed time window, provided its version is still the "
+            + "given one. A placed order has version 1, the response tells the version after the update"
     )
     @PutMapping
-    public void updateOrder( @RequestBody @Valid UpdateOrderRequest request) {
+    public UpdateOrderResponse updateOrder( @RequestBody @Valid UpdateOrderRequest request) {
         log.info("Updating {} order", request.id());
-        orderService.updateOrder(request);
+        return new UpdateOrderResponse(request.id(), orderService.updateOrder(request));
     }
 
     @Operation(
         summary = "Search orders",
-        description = "Retrieves a paginated list of orders based on search criteria"
+        description = "Retrieves a paginated list of orders based on search criteria, sorted by createdAt or totalPrice "
+            + "(sort=totalPrice,asc), newest first by default. The total is counted exactly, estimated by the database "
+            + "planner or left out depending on the count mode"
     )
     @GetMapping("/search")
-    public PagedModel<SearchOrderResponse> searchOrders(@Valid SearchOrderRequest request) {
+    public SearchPage<SearchOrderResponse> searchOrders(
+        @Valid SearchOrderRequest request,
+        @RequestParam(defaultValue = "exact") String count
+    ) {
+        var countMode = CountMode.from(count);
+        log.info("Searching orders by filter {} with {} count", request, countMode);
+        return orderService.searchOrders(request, countMode);
+    }
+
+    @Operation(
+        summary = "Export orders",
+        description = "Streams all orders matching the search criteria in id order as NDJSON or CSV, pagination is ignored"
+    )
+    @GetMapping("/export")
+    public void exportOrders(
+        @Valid SearchOrderRequest request,
+        @RequestParam(defaultValue = "ndjson") String format,
+        HttpServletResponse response
+    ) throws IOException {
+        var exportFormat = ExportFormat.from(format);
+        log.info("Exporting orders by filter {} as {}", request, exportFormat);
+
+        response.setContentType(exportFormat.contentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+            .filename("orders." + exportFormat.extension())
+            .build()
+            .toString());
+        orderExportService.exportOrders(request, exportFormat, response.getOutputStream());
+    }
+
+    @Operation(
+        summary = "Search orders with keyset pagination",
+        description = "Retrieves orders newest first, page by page, following the cursor of the previous page. "
+            + "Other sort orders are rejected"
+    )
+    @GetMapping("/search/cursor")
+    public CursorPage<SearchOrderResponse> searchOrdersByCursor(@Valid SearchOrderRequest request) {
         log.info("Searching orders by filter {}", request);
-        return orderService.searchOrders(request);
+        return orderService.searchOrdersByCursor(request);
+    }
+
+    @Operation(
+        summary = "Stream order events",
+        description = "Pushes placed and updated orders as Server-Sent Events named created and updated, of the given "
+            + "phone only if any. A client falling behind is disconnected, it should search again on every reconnect "
+            + "to catch up"
+    )
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOrders(@RequestParam(required = false) String phone) {
+        log.info("Streaming orders of phone {}", phone);
+        return orderStreamBroadcaster.subscribe(phone);
     }
 }
@@ -0,0 +1,55 @@
+package com.github.ggruzdov.sqrddemo.controller;
+
+import com.github.ggruzdov.sqrddemo.request.LoginRequest;
+import com.github.ggruzdov.sqrddemo.service.CustomerService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.server.context.ServerSecurityContextRepository;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+@Slf4j
+@RestController
+@Profile("reactive")
+@RequiredArgsConstructor
+@RequestMapping("/auth")
+@Tag(name = "Auth series", description = "API endpoints for customer authentication")
+public class ReactiveAuthController {
+
+    private final ReactiveAuthenticationManager authenticationManager;
+    private final ServerSecurityContextRepository securityContextRepository;
+    private final CustomerService customerService;
+
+    @Operation(summary = "Token-based user authentication with phone and password")
+    @PostMapping("/login")
+    public Mono<Void> login(@RequestBody @Valid LoginRequest loginRequest, ServerWebExchange exchange) {
+        log.info("Try to login user {}", loginRequest.phone());
+        return authenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken(
+                    loginRequest.phone(),
+                    loginRequest.password()
+                )
+            )
+            .flatMap(authentication -> Mono.fromRunnable(() -> customerService.rehashIfNecessary(loginRequest.phone(), loginRequest.password()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then(securityContextRepository.save(exchange, new SecurityContextImpl(authentication))));
+    }
+
+    @Operation(summary = "End user session and clear authentication")
+    @PostMapping("/logout")
+    public Mono<Void> logout(ServerWebExchange exchange) {
+        return securityContextRepository.save(exchange, null);
+    }
+}
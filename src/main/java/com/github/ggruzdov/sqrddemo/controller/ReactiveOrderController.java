@@ -0,0 +1,63 @@
+package com.github.ggruzdov.sqrddemo.controller;
+
+import com.github.ggruzdov.sqrddemo.request.CountMode;
+import com.github.ggruzdov.sqrddemo.request.PlaceOrderRequest;
+import com.github.ggruzdov.sqrddemo.request.SearchOrderRequest;
+import com.github.ggruzdov.sqrddemo.response.PlaceOrderResponse;
+import com.github.ggruzdov.sqrddemo.response.SearchOrderResponse;
+import com.github.ggruzdov.sqrddemo.response.SearchPage;
+import com.github.ggruzdov.sqrddemo.service.ReactiveOrderService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * The place and search endpoints of {@link OrderController} on the reactive stack, same requests and responses.
+ */
+@Slf4j
+@RestController
+@Profile("reactive")
+@RequiredArgsConstructor
+@RequestMapping("/orders")
+@Tag(name = "Order management series", description = "API endpoints for managing orders")
+public class ReactiveOrderController {
+
+    private final ReactiveOrderService orderService;
+
+    @Operation(
+        summary = "Place a new order",
+        description = "Creates a new order with the specified number of pilotes and customer information"
+    )
+    @PostMapping
+    public Mono<PlaceOrderResponse> placeOrder(@RequestBody @Valid PlaceOrderRequest request) {
+        log.info("Placing order from {}, for {} pilotes", request.firstName(), request.pilotes());
+        return orderService.placeOrder(request)
+            .map(order -> new PlaceOrderResponse(order.getId()));
+    }
+
+    @Operation(
+        summary = "Search orders",
+        description = "Retrieves a paginated list of orders based on search criteria, sorted by createdAt or totalPrice "
+            + "(sort=totalPrice,asc), newest first by default. The total is counted exactly, estimated by the database "
+            + "planner or left out depending on the count mode"
+    )
+    @GetMapping("/search")
+    public Mono<SearchPage<SearchOrderResponse>> searchOrders(
+        @Valid SearchOrderRequest request,
+        @RequestParam(defaultValue = "exact") String count
+    ) {
+        var countMode = CountMode.from(count);
+        log.info("Searching orders by filter {} with {} count", request, countMode);
+        return orderService.searchOrders(request, countMode);
+    }
+}
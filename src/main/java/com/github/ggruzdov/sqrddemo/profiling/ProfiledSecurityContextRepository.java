@@ -0,0 +1,59 @@
+package com.github.ggruzdov.sqrddemo.profiling;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.context.DeferredSecurityContext;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
+
+/**
+ * Times the lookup of the security context, the HttpSession or the session token, as the session phase.
+ */
+@RequiredArgsConstructor
+public class ProfiledSecurityContextRepository implements SecurityContextRepository {
+
+    private static final String PHASE = "session";
+
+    private final SecurityContextRepository delegate;
+
+    @Override
+    public DeferredSecurityContext loadDeferredContext(HttpServletRequest request) {
+        var context = delegate.loadDeferredContext(request);
+        return new DeferredSecurityContext() {
+
+            @Override
+            public SecurityContext get() {
+                try (var phase = RequestPhase.start(PHASE)) {
+                    return context.get();
+                }
+            }
+
+            @Override
+            public boolean isGenerated() {
+                try (var phase = RequestPhase.start(PHASE)) {
+                    return context.isGenerated();
+                }
+            }
+        };
+    }
+
+    @Override
+    @Deprecated
+    public SecurityContext loadContext(HttpRequestResponseHolder requestResponseHolder) {
+        try (var phase = RequestPhase.start(PHASE)) {
+            return delegate.loadContext(requestResponseHolder);
+        }
+    }
+
+    @Override
+    public void saveContext(SecurityContext context, HttpServletRequest request, HttpServletResponse response) {
+        delegate.saveContext(context, request, response);
+    }
+
+    @Override
+    public boolean containsContext(HttpServletRequest request) {
+        return delegate.containsContext(request);
+    }
+}
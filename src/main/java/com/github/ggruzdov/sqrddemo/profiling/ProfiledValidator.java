@@ -0,0 +1,48 @@
+package com.github.ggruzdov.sqrddemo.profiling;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.validation.Errors;
+import org.springframework.validation.SmartValidator;
+
+/**
+ * Times the bean validation of {@code @Valid} controller arguments as the validation phase. Unwrapping still
+ * yields the target validator, so method validation, e.g. of constraints on a list argument, isn't timed.
+ */
+@RequiredArgsConstructor
+public class ProfiledValidator implements SmartValidator {
+
+    private static final String PHASE = "validation";
+
+    private final SmartValidator delegate;
+
+    @Override
+    public boolean supports(Class<?> clazz) {
+        return delegate.supports(clazz);
+    }
+
+    @Override
+    public void validate(Object target, Errors errors) {
+        try (var phase = RequestPhase.start(PHASE)) {
+            delegate.validate(target, errors);
+        }
+    }
+
+    @Override
+    public void validate(Object target, Errors errors, Object... validationHints) {
+        try (var phase = RequestPhase.start(PHASE)) {
+            delegate.validate(target, errors, validationHints);
+        }
+    }
+
+    @Override
+    public void validateValue(Class<?> targetType, String fieldName, Object value, Errors errors, Object... validationHints) {
+        try (var phase = RequestPhase.start(PHASE)) {
+            delegate.validateValue(targetType, fieldName, value, errors, validationHints);
+        }
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> type) {
+        return delegate.unwrap(type);
+    }
+}
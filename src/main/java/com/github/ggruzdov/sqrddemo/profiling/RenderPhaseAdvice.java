@@ -0,0 +1,42 @@
+package com.github.ggruzdov.sqrddemo.profiling;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Opens the render phase right before the message converter writes the body, {@link RequestProfilingFilter}
+ * closes it once the response is complete.
+ */
+@ControllerAdvice
+class RenderPhaseAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(
+        Object body,
+        MethodParameter returnType,
+        MediaType selectedContentType,
+        Class<? extends HttpMessageConverter<?>> selectedConverterType,
+        ServerHttpRequest request,
+        ServerHttpResponse response
+    ) {
+        if (request instanceof ServletServerHttpRequest servletRequest) {
+            var attributes = servletRequest.getServletRequest();
+            // An error response rendered after a failed one stays in the same phase
+            if (attributes.getAttribute(RequestProfilingFilter.RENDER_PHASE_ATTRIBUTE) == null) {
+                attributes.setAttribute(RequestProfilingFilter.RENDER_PHASE_ATTRIBUTE, RequestPhase.start("render"));
+            }
+        }
+        return body;
+    }
+}
@@ -0,0 +1,25 @@
+package com.github.ggruzdov.sqrddemo.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.github.ggruzdov.sqrddemo.Request")
+@Label("Request")
+@Description("HTTP request handled by the application, from the first filter to the rendered response")
+@Category({"SQRD Demo", "Requests"})
+@StackTrace(false)
+class RequestEvent extends Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Path")
+    String path;
+
+    @Label("Status")
+    int status;
+}
@@ -0,0 +1,62 @@
+package com.github.ggruzdov.sqrddemo.profiling;
+
+/**
+ * Times a phase of the current request, as a JFR {@link RequestPhaseEvent} when the event is enabled in a recording
+ * and in the {@code Server-Timing} header when the header is on. With neither of them {@link #start(String)} returns
+ * a shared no-op instance, so instrumented code pays for a couple of checks only.
+ * <pre>{@code
+ * try (var phase = RequestPhase.start("query")) {
+ *     ...
+ * }
+ * }</pre>
+ */
+public final class RequestPhase implements AutoCloseable {
+
+    private static final RequestPhase NOOP = new RequestPhase(null, null, null);
+    private static final ThreadLocal<ServerTimings> SERVER_TIMINGS = new ThreadLocal<>();
+
+    private final String name;
+    private final RequestPhaseEvent event;
+    private final ServerTimings serverTimings;
+    private final long startedAt;
+
+    private RequestPhase(String name, RequestPhaseEvent event, ServerTimings serverTimings) {
+        this.name = name;
+        this.event = event;
+        this.serverTimings = serverTimings;
+        this.startedAt = serverTimings != null ? System.nanoTime() : 0;
+    }
+
+    public static RequestPhase start(String name) {
+        var serverTimings = SERVER_TIMINGS.get();
+        var event = new RequestPhaseEvent();
+        if (!event.isEnabled()) {
+            if (serverTimings == null) {
+                return NOOP;
+            }
+            event = null;
+        } else {
+            event.phase = name;
+            event.begin();
+        }
+        return new RequestPhase(name, event, serverTimings);
+    }
+
+    @Override
+    public void close() {
+        if (event != null) {
+            event.commit();
+        }
+        if (serverTimings != null) {
+            serverTimings.add(name, System.nanoTime() - startedAt);
+        }
+    }
+
+    static void collect(ServerTimings serverTimings) {
+        SERVER_TIMINGS.set(serverTimings);
+    }
+
+    static void stopCollecting() {
+        SERVER_TIMINGS.remove();
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.ggruzdov.sqrddemo.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.github.ggruzdov.sqrddemo.RequestPhase")
+@Label("Request Phase")
+@Description("Time spent by a request in one of its phases, nested in the Request event of the same thread")
+@Category({"SQRD Demo", "Requests"})
+@StackTrace(false)
+class RequestPhaseEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+}
@@ -0,0 +1,110 @@
+package com.github.ggruzdov.sqrddemo.profiling;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Set;
+
+/**
+ * Records every request as a JFR {@link RequestEvent} enclosing its {@link RequestPhaseEvent}s and, when enabled,
+ * sends the phase durations in the {@code Server-Timing} header. The header has to precede the body, so the body
+ * is buffered till the request is handled, except for the streamed responses. Async requests, such as the order
+ * stream, get the header with the phases so far once they go async, and their body isn't buffered from then on.
+ */
+public class RequestProfilingFilter extends OncePerRequestFilter {
+
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    static final String RENDER_PHASE_ATTRIBUTE = RequestProfilingFilter.class.getName() + ".RENDER_PHASE";
+
+    private static final Set<String> STREAMED_PATHS = Set.of("/orders/export");
+
+    private final boolean serverTiming;
+
+    public RequestProfilingFilter(boolean serverTiming) {
+        this.serverTiming = serverTiming;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        var event = new RequestEvent();
+        event.begin();
+        try {
+            if (serverTiming && !STREAMED_PATHS.contains(request.getRequestURI())) {
+                doFilterWithServerTiming(request, response, filterChain);
+            } else {
+                filterChain.doFilter(request, response);
+                closeRenderPhase(request);
+            }
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.method = request.getMethod();
+                event.path = request.getRequestURI();
+                event.status = response.getStatus();
+                event.commit();
+            }
+        }
+    }
+
+    private void doFilterWithServerTiming(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        var serverTimings = new ServerTimings();
+        var bufferedResponse = new ServerTimingResponse(response);
+        var startedAt = System.nanoTime();
+        // Async requests go on writing after the chain returns, so the body can only be buffered till they start
+        var asyncAwareRequest = new HttpServletRequestWrapper(request) {
+
+            @Override
+            public AsyncContext startAsync() {
+                stream();
+                return super.startAsync();
+            }
+
+            @Override
+            public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) {
+                stream();
+                return super.startAsync(servletRequest, servletResponse);
+            }
+
+            private void stream() {
+                try {
+                    bufferedResponse.stream(serverTimings.header(System.nanoTime() - startedAt));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+
+        RequestPhase.collect(serverTimings);
+        try {
+            filterChain.doFilter(asyncAwareRequest, bufferedResponse);
+            closeRenderPhase(request);
+        } finally {
+            RequestPhase.stopCollecting();
+        }
+
+        if (!bufferedResponse.isStreaming()) {
+            response.setHeader(SERVER_TIMING_HEADER, serverTimings.header(System.nanoTime() - startedAt));
+            bufferedResponse.copyBodyToResponse();
+        }
+    }
+
+    // Rendering starts in RenderPhaseAdvice and lasts till the body is written
+    private static void closeRenderPhase(HttpServletRequest request) {
+        if (request.getAttribute(RENDER_PHASE_ATTRIBUTE) instanceof RequestPhase phase) {
+            request.removeAttribute(RENDER_PHASE_ATTRIBUTE);
+            phase.close();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.ggruzdov.sqrddemo.profiling;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Buffers the body till the {@code Server-Timing} header is set, or till the request goes async. The body of an
+ * async request, such as an event stream, is written as it comes, it wouldn't be copied before the request ends.
+ */
+class ServerTimingResponse extends ContentCachingResponseWrapper {
+
+    private volatile boolean streaming;
+
+    ServerTimingResponse(HttpServletResponse response) {
+        super(response);
+    }
+
+    boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Sends the header along with the body buffered so far, the rest of the body goes straight to the response.
+     */
+    void stream(String serverTiming) throws IOException {
+        if (streaming) {
+            return;
+        }
+        ((HttpServletResponse) getResponse()).setHeader(RequestProfilingFilter.SERVER_TIMING_HEADER, serverTiming);
+        copyBodyToResponse(false);
+        streaming = true;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        return streaming ? getResponse().getOutputStream() : super.getOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        return streaming ? getResponse().getWriter() : super.getWriter();
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (streaming) {
+            getResponse().flushBuffer();
+        } else {
+            super.flushBuffer();
+        }
+    }
+}
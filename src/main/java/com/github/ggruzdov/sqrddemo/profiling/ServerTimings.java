@@ -0,0 +1,30 @@
+package com.github.ggruzdov.sqrddemo.profiling;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Phase durations of one request, phases entered several times are summed up.
+ */
+class ServerTimings {
+
+    private final Map<String, Long> durations = new LinkedHashMap<>();
+
+    void add(String phase, long nanos) {
+        durations.merge(phase, nanos, Long::sum);
+    }
+
+    String header(long totalNanos) {
+        var header = durations.entrySet()
+            .stream()
+            .map(entry -> metric(entry.getKey(), entry.getValue()))
+            .collect(Collectors.joining(", "));
+        return header.isEmpty() ? metric("total", totalNanos) : header + ", " + metric("total", totalNanos);
+    }
+
+    private static String metric(String name, long nanos) {
+        return String.format(Locale.ROOT, "%s;dur=%.3f", name, nanos / 1e6);
+    }
+}
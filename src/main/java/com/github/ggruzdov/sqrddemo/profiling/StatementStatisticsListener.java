@@ -0,0 +1,158 @@
+package com.github.ggruzdov.sqrddemo.profiling;
+
+import com.github.ggruzdov.sqrddemo.config.SlowQueryLogProperties;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.listener.logging.DefaultQueryLogEntryCreator;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps execution statistics per SQL statement and logs a sample of the slow statements with their bind parameters
+ * and the service method that ran them. Registered on the proxy of the application data source.
+ */
+@Slf4j
+public class StatementStatisticsListener implements QueryExecutionListener {
+
+    private static final String STARTED_AT = "startedAt";
+    private static final String APPLICATION_PACKAGE = "com.github.ggruzdov.sqrddemo.";
+    private static final String SERVICE_PACKAGE = APPLICATION_PACKAGE + "service.";
+
+    private final long thresholdNanos;
+    private final double sampleRate;
+    private final int maxStatements;
+    private final Map<String, Statistics> statistics = new ConcurrentHashMap<>();
+    private final DefaultQueryLogEntryCreator logEntryCreator = new DefaultQueryLogEntryCreator();
+
+    public StatementStatisticsListener(SlowQueryLogProperties properties) {
+        this.thresholdNanos = properties.getThreshold().toNanos();
+        this.sampleRate = properties.getSampleRate();
+        this.maxStatements = properties.getMaxStatements();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        // The elapsed time of the proxy is in milliseconds, too coarse for statements taking a fraction of one
+        execInfo.addCustomValue(STARTED_AT, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        var startedAt = execInfo.getCustomValue(STARTED_AT, Long.class);
+        if (startedAt == null) {
+            return;
+        }
+        var elapsed = System.nanoTime() - startedAt;
+        var slow = elapsed >= thresholdNanos;
+
+        for (var queryInfo : queryInfoList) {
+            var entry = statistics.get(queryInfo.getQuery());
+            if (entry == null && statistics.size() < maxStatements) {
+                entry = statistics.computeIfAbsent(queryInfo.getQuery(), query -> new Statistics());
+            }
+            if (entry != null) {
+                entry.record(elapsed, slow, execInfo.isSuccess());
+            }
+        }
+
+        if (slow && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            log.warn(
+                "Slow statement took {} ms in {}: {}",
+                elapsed / 1_000_000,
+                caller(),
+                logEntryCreator.getLogEntry(execInfo, queryInfoList, false, false, false)
+            );
+        }
+    }
+
+    /**
+     * Statistics of the tracked statements, the ones taking the most time in total first.
+     */
+    public List<StatementStatistics> statistics() {
+        return statistics.entrySet()
+            .stream()
+            .map(entry -> entry.getValue().snapshot(entry.getKey()))
+            .sorted(Comparator.comparingDouble(StatementStatistics::totalMillis).reversed())
+            .toList();
+    }
+
+    public void reset() {
+        statistics.clear();
+    }
+
+    // The service method running the statement, otherwise the closest application frame
+    private static String caller() {
+        return StackWalker.getInstance().walk(frames -> {
+            String closest = null;
+            for (var frame : frames.toList()) {
+                var className = frame.getClassName();
+                if (!className.startsWith(APPLICATION_PACKAGE) || className.contains("$$")
+                    || className.startsWith(StatementStatisticsListener.class.getPackageName())) {
+                    continue;
+                }
+                var method = className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName();
+                if (className.startsWith(SERVICE_PACKAGE)) {
+                    return method;
+                }
+                if (closest == null) {
+                    closest = method;
+                }
+            }
+            return closest != null ? closest : "unknown";
+        });
+    }
+
+    public record StatementStatistics(
+        String sql,
+        long calls,
+        long slowCalls,
+        long errors,
+        double totalMillis,
+        double meanMillis,
+        double maxMillis
+    ) {
+    }
+
+    private static class Statistics {
+
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder slowCalls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos, boolean slow, boolean success) {
+            calls.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            if (slow) {
+                slowCalls.increment();
+            }
+            if (!success) {
+                errors.increment();
+            }
+        }
+
+        StatementStatistics snapshot(String sql) {
+            var callCount = calls.sum();
+            var total = totalNanos.sum();
+            return new StatementStatistics(
+                sql,
+                callCount,
+                slowCalls.sum(),
+                errors.sum(),
+                total / 1e6,
+                callCount == 0 ? 0 : total / 1e6 / callCount,
+                maxNanos.get() / 1e6
+            );
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.ggruzdov.sqrddemo.profiling;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * {@code GET /actuator/statements?limit=20} lists the statements taking the most database time,
+ * {@code DELETE /actuator/statements} starts the statistics over.
+ */
+@Endpoint(id = "statements")
+@RequiredArgsConstructor
+public class StatementsEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final StatementStatisticsListener statementStatisticsListener;
+
+    @ReadOperation
+    public List<StatementStatisticsListener.StatementStatistics> statements(@Nullable Integer limit) {
+        return statementStatisticsListener.statistics()
+            .stream()
+            .limit(limit != null ? limit : DEFAULT_LIMIT)
+            .toList();
+    }
+
+    @DeleteOperation
+    public void reset() {
+        statementStatisticsListener.reset();
+    }
+}
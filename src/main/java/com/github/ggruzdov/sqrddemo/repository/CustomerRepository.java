@@ -2,10 +2,18 @@ package com.github.ggruzdov.sqrddemo.repository;
 
 import com.github.ggruzdov.sqrddemo.model.Customer;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
 public interface CustomerRepository extends JpaRepository<Customer, Integer> {
 
     Optional<Customer> findByPhone(String phone);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Customer c SET c.password = :password WHERE c.phone = :phone")
+    int updatePassword(String phone, String password);
 }
\ No newline at end of file
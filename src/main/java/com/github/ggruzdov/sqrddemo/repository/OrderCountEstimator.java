@@ -0,0 +1,51 @@
+package com.github.ggruzdov.sqrddemo.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ggruzdov.sqrddemo.profiling.RequestPhase;
+import com.github.ggruzdov.sqrddemo.request.SearchOrderRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+
+/**
+ * Estimates the number of orders matching the search filters from the planner statistics, only planning the count
+ * query so no rows are read. The estimate is as fresh as the last {@code ANALYZE} of the table and may be far off
+ * for substrings of names the statistics know little about.
+ */
+@Repository
+public class OrderCountEstimator {
+
+    private static final String EXPLAIN = """
+        EXPLAIN (FORMAT JSON)
+        SELECT 1
+        FROM orders
+        WHERE TRUE
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public OrderCountEstimator(DataSource dataSource, ObjectMapper objectMapper) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(readOnly = true)
+    public long estimate(SearchOrderRequest request) {
+        var filter = OrderFilterSql.of(request);
+
+        String plan;
+        try (var phase = RequestPhase.start("estimate")) {
+            plan = jdbcTemplate.queryForObject(EXPLAIN + filter.conditions(), String.class, filter.args());
+        }
+
+        try {
+            return objectMapper.readTree(plan).path(0).path("Plan").path("Plan Rows").asLong();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unexpected plan of the count estimate: " + plan, e);
+        }
+    }
+}
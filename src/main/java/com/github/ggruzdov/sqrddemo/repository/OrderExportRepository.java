@@ -0,0 +1,56 @@
+package com.github.ggruzdov.sqrddemo.repository;
+
+import com.github.ggruzdov.sqrddemo.config.ExportProperties;
+import com.github.ggruzdov.sqrddemo.model.Order;
+import com.github.ggruzdov.sqrddemo.request.SearchOrderRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.function.Consumer;
+
+/**
+ * Reads orders row by row over plain JDBC, bypassing the persistence context which would keep every loaded entity.
+ */
+@Repository
+public class OrderExportRepository {
+
+    private static final String SELECT = """
+        SELECT id, version, customer_first_name, customer_last_name, customer_phone, delivery_address,
+               pilotes, total_price, created_at, updated_at
+        FROM orders
+        WHERE TRUE
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderExportRepository(DataSource dataSource, ExportProperties exportProperties) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        // The PostgreSQL driver uses a cursor only with a fetch size inside a transaction, otherwise it reads all rows
+        this.jdbcTemplate.setFetchSize(exportProperties.getFetchSize());
+    }
+
+    /**
+     * Passes the orders matching the same filters as {@link OrderSpecifications#matching} to the consumer in id order.
+     * Must be called within a transaction, an exception thrown by the consumer stops the query.
+     */
+    public void forEach(SearchOrderRequest request, Consumer<Order> consumer) {
+        var filter = OrderFilterSql.of(request);
+        var sql = SELECT + filter.conditions() + "ORDER BY id";
+
+        jdbcTemplate.query(sql, rs -> {
+            consumer.accept(Order.builder()
+                .id(rs.getInt("id"))
+                .version(rs.getInt("version"))
+                .customerFirstName(rs.getString("customer_first_name"))
+                .customerLastName(rs.getString("customer_last_name"))
+                .customerPhone(rs.getString("customer_phone"))
+                .deliveryAddress(rs.getString("delivery_address"))
+                .pilotes(rs.getInt("pilotes"))
+                .totalPrice(rs.getInt("total_price"))
+                .createdAt(rs.getTimestamp("created_at").toInstant())
+                .updatedAt(rs.getTimestamp("updated_at").toInstant())
+                .build());
+        }, filter.args());
+    }
+}
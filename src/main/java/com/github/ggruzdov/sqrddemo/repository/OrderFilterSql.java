@@ -0,0 +1,44 @@
+package com.github.ggruzdov.sqrddemo.repository;
+
+import com.github.ggruzdov.sqrddemo.request.SearchOrderRequest;
+import org.springframework.util.StringUtils;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+
+/**
+ * Conditions of the search filters in SQL, matching the same orders as {@link OrderSpecifications#matching},
+ * for the queries that bypass JPA. Each condition starts with {@code AND}, to follow a {@code WHERE TRUE}.
+ */
+record OrderFilterSql(
+    String conditions,
+    Object[] args
+) {
+
+    static OrderFilterSql of(SearchOrderRequest request) {
+        var sql = new StringBuilder();
+        var args = new ArrayList<>();
+
+        if (StringUtils.hasText(request.phone())) {
+            sql.append("  AND customer_phone = ?\n");
+            args.add(request.phone());
+        }
+        if (StringUtils.hasText(request.firstName())) {
+            sql.append("  AND customer_first_name LIKE ? ESCAPE '\\'\n");
+            args.add(OrderSpecifications.containing(request.firstName()));
+        }
+        if (StringUtils.hasText(request.lastName())) {
+            sql.append("  AND customer_last_name LIKE ? ESCAPE '\\'\n");
+            args.add(OrderSpecifications.containing(request.lastName()));
+        }
+        if (request.createdFrom() != null) {
+            sql.append("  AND created_at >= ?\n");
+            args.add(Timestamp.from(request.createdFrom()));
+        }
+        if (request.createdTo() != null) {
+            sql.append("  AND created_at < ?\n");
+            args.add(Timestamp.from(request.createdTo()));
+        }
+        return new OrderFilterSql(sql.toString(), args.toArray());
+    }
+}
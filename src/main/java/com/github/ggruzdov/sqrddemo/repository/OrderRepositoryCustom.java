@@ -0,0 +1,41 @@
+package com.github.ggruzdov.sqrddemo.repository;
+
+import com.github.ggruzdov.sqrddemo.model.Order;
+import com.github.ggruzdov.sqrddemo.request.SearchOrderRequest;
+import com.github.ggruzdov.sqrddemo.response.SearchOrderResponse;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface OrderRepositoryCustom {
+
+    /**
+     * Updates customer and delivery details of the order with a single statement, provided the order was created
+     * not earlier than {@code modifiableSince} and the version of {@code changes} is still the current one.
+     *
+     * @return the new version and the phone before the update, or empty if no order matched the conditions
+     */
+    Optional<UpdatedOrder> updateIfModifiable(Order changes, Instant modifiableSince);
+
+    /**
+     * Same as {@code findAll(OrderSpecifications.matching(filter), pageable).map(SearchOrderResponse::from)}, but runs
+     * the query of the filter combination prepared by {@link OrderSearchQueries} and selects the response columns only
+     * in a read-only transaction, so no entities are managed, snapshotted for dirty checking or flushed.
+     */
+    Page<SearchOrderResponse> searchOrders(SearchOrderRequest filter, Pageable pageable);
+
+    /**
+     * Same page as {@link #searchOrders} without the count query, whether there is a next page is told by
+     * fetching one row more than the page size.
+     */
+    Slice<SearchOrderResponse> searchOrderSlice(SearchOrderRequest filter, Pageable pageable);
+
+    record UpdatedOrder(
+        Integer version,
+        String previousPhone
+    ) {
+    }
+}
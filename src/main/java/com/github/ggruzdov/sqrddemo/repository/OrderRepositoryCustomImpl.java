@@ -0,0 +1,135 @@
+package com.github.ggruzdov.sqrddemo.repository;
+
+import com.github.ggruzdov.sqrddemo.model.Order;
+import com.github.ggruzdov.sqrddemo.profiling.RequestPhase;
+import com.github.ggruzdov.sqrddemo.request.SearchOrderRequest;
+import com.github.ggruzdov.sqrddemo.response.SearchOrderResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceUnit;
+import jakarta.persistence.Tuple;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+class OrderRepositoryCustomImpl implements OrderRepositoryCustom {
+
+    // The self-join exposes the row as it was before the update
+    private static final String UPDATE_IF_MODIFIABLE = """
+        UPDATE orders o
+        SET customer_first_name = :firstName,
+            customer_last_name  = :lastName,
+            customer_phone      = :phone,
+            delivery_address    = :deliveryAddress,
+            pilotes             = :pilotes,
+            total_price         = :totalPrice,
+            version             = o.version + 1,
+            updated_at          = :updatedAt
+        FROM orders previous
+        WHERE o.id = :id
+          AND o.created_at >= :modifiableSince
+          AND previous.id = o.id
+          AND previous.created_at >= :modifiableSince
+          AND o.version = :version
+        RETURNING o.version, previous.customer_phone
+        """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    void precompileSearchQueries() {
+        try (var entityManager = entityManagerFactory.createEntityManager()) {
+            OrderSearchQueries.precompile(entityManager);
+        }
+    }
+
+    @Override
+    public Optional<UpdatedOrder> updateIfModifiable(Order changes, Instant modifiableSince) {
+        // The statement bypasses the persistence context, so pending changes go first
+        // and a managed copy of the order is dropped afterward, other managed entities stay as they are
+        entityManager.flush();
+        var query = entityManager.createNativeQuery(UPDATE_IF_MODIFIABLE)
+            .setParameter("id", changes.getId())
+            .setParameter("firstName", changes.getCustomerFirstName())
+            .setParameter("lastName", changes.getCustomerLastName())
+            .setParameter("phone", changes.getCustomerPhone())
+            .setParameter("deliveryAddress", changes.getDeliveryAddress())
+            .setParameter("pilotes", changes.getPilotes())
+            .setParameter("totalPrice", changes.getTotalPrice())
+            .setParameter("updatedAt", Instant.now())
+            .setParameter("modifiableSince", modifiableSince)
+            .setParameter("version", changes.getVersion());
+
+        @SuppressWarnings("unchecked")
+        var rows = (List<Object[]>) query.getResultList();
+        // The reference is the managed copy if there is one, otherwise an uninitialized proxy, either way no query
+        entityManager.detach(entityManager.getReference(Order.class, changes.getId()));
+
+        return rows.stream()
+            .findFirst()
+            .map(row -> new UpdatedOrder((Integer) row[0], (String) row[1]));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<SearchOrderResponse> searchOrders(SearchOrderRequest filter, Pageable pageable) {
+        var content = select(filter, pageable.getOffset(), pageable.getPageSize());
+
+        // As in SimpleJpaRepository, the count is skipped when the page itself tells the total
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(filter));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<SearchOrderResponse> searchOrderSlice(SearchOrderRequest filter, Pageable pageable) {
+        // One extra row tells whether there is a next page
+        var content = select(filter, pageable.getOffset(), pageable.getPageSize() + 1);
+
+        var hasNext = content.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
+    }
+
+    private List<SearchOrderResponse> select(SearchOrderRequest filter, long offset, int limit) {
+        try (var phase = RequestPhase.start("query")) {
+            return OrderSearchQueries.select(entityManager, filter)
+                .setFirstResult((int) offset)
+                .setMaxResults(limit)
+                .getResultStream()
+                .map(OrderRepositoryCustomImpl::toSearchOrderResponse)
+                .toList();
+        }
+    }
+
+    private long count(SearchOrderRequest filter) {
+        try (var phase = RequestPhase.start("count")) {
+            return OrderSearchQueries.count(entityManager, filter).getSingleResult();
+        }
+    }
+
+    private static SearchOrderResponse toSearchOrderResponse(Tuple row) {
+        return new SearchOrderResponse(
+            row.get(0, Integer.class),
+            row.get(1, String.class),
+            row.get(2, String.class),
+            row.get(3, String.class),
+            row.get(4, String.class),
+            row.get(5, Integer.class),
+            SearchOrderResponse.formatPrice(row.get(6, Integer.class)),
+            row.get(7, Instant.class),
+            row.get(8, Integer.class)
+        );
+    }
+}
@@ -0,0 +1,140 @@
+package com.github.ggruzdov.sqrddemo.repository;
+
+import com.github.ggruzdov.sqrddemo.request.OrderSort;
+import com.github.ggruzdov.sqrddemo.request.SearchOrderRequest;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+
+/**
+ * Queries of the offset search, one per combination of the filters and the sort, with only the parameters bound per search.
+ * Unlike a criteria query, built anew for every search, a query string is interpreted once into the Hibernate
+ * query plan cache, and every combination is always sent as the same SQL, which pgjdbc turns into a server-side
+ * prepared statement after a few executions on a connection. Matches the same orders as
+ * {@link OrderSpecifications#matching}.
+ */
+public final class OrderSearchQueries {
+
+    private static final int PHONE = 1;
+    private static final int FIRST_NAME = 2;
+    private static final int LAST_NAME = 4;
+    private static final int CREATED_FROM = 8;
+    private static final int CREATED_TO = 16;
+    private static final int COMBINATIONS = 32;
+    private static final int SORTS = OrderSort.Field.values().length * Sort.Direction.values().length;
+
+    private static final String SELECT = """
+        select o.id, o.customerFirstName, o.customerLastName, o.customerPhone, o.deliveryAddress,
+               o.pilotes, o.totalPrice, o.createdAt, o.version
+        from Order o
+        """;
+    private static final String COUNT = """
+        select count(o)
+        from Order o
+        """;
+
+    private static final String[][] SELECTS = new String[COMBINATIONS][SORTS];
+    private static final String[] COUNTS = new String[COMBINATIONS];
+
+    static {
+        for (int filters = 0; filters < COMBINATIONS; filters++) {
+            for (var field : OrderSort.Field.values()) {
+                for (var direction : Sort.Direction.values()) {
+                    var sort = new OrderSort(field, direction);
+                    SELECTS[filters][sortIndex(sort)] = SELECT + where(filters) + orderBy(sort);
+                }
+            }
+            COUNTS[filters] = COUNT + where(filters);
+        }
+    }
+
+    private OrderSearchQueries() {
+    }
+
+    private static String where(int filters) {
+        var conditions = new ArrayList<String>();
+        if ((filters & PHONE) != 0) {
+            conditions.add("o.customerPhone = :phone");
+        }
+        if ((filters & FIRST_NAME) != 0) {
+            conditions.add("o.customerFirstName like :firstName escape '\\'");
+        }
+        if ((filters & LAST_NAME) != 0) {
+            conditions.add("o.customerLastName like :lastName escape '\\'");
+        }
+        if ((filters & CREATED_FROM) != 0) {
+            conditions.add("o.createdAt >= :createdFrom");
+        }
+        if ((filters & CREATED_TO) != 0) {
+            conditions.add("o.createdAt < :createdTo");
+        }
+        return conditions.isEmpty() ? "" : "where " + String.join(" and ", conditions) + "\n";
+    }
+
+    // The id breaks ties in the same direction, so that the order, and with it the pages, are stable
+    private static String orderBy(OrderSort sort) {
+        var direction = sort.direction().isAscending() ? "asc" : "desc";
+        var column = switch (sort.field()) {
+            case CREATED_AT -> "o.createdAt";
+            case TOTAL_PRICE -> "o.totalPrice";
+        };
+        return "order by " + column + " " + direction + ", o.id " + direction;
+    }
+
+    private static int sortIndex(OrderSort sort) {
+        return sort.field().ordinal() * Sort.Direction.values().length + sort.direction().ordinal();
+    }
+
+    public static TypedQuery<Tuple> select(EntityManager entityManager, SearchOrderRequest request) {
+        return bind(entityManager.createQuery(SELECTS[filters(request)][sortIndex(request.sort())], Tuple.class), request);
+    }
+
+    public static TypedQuery<Long> count(EntityManager entityManager, SearchOrderRequest request) {
+        return bind(entityManager.createQuery(COUNTS[filters(request)], Long.class), request);
+    }
+
+    /**
+     * Interprets the queries of all the combinations, so that none is left to the first search
+     * and a broken one fails the startup.
+     */
+    static void precompile(EntityManager entityManager) {
+        for (int filters = 0; filters < COMBINATIONS; filters++) {
+            for (var select : SELECTS[filters]) {
+                entityManager.createQuery(select, Tuple.class);
+            }
+            entityManager.createQuery(COUNTS[filters], Long.class);
+        }
+    }
+
+    private static int filters(SearchOrderRequest request) {
+        return (StringUtils.hasText(request.phone()) ? PHONE : 0)
+            | (StringUtils.hasText(request.firstName()) ? FIRST_NAME : 0)
+            | (StringUtils.hasText(request.lastName()) ? LAST_NAME : 0)
+            | (request.createdFrom() != null ? CREATED_FROM : 0)
+            | (request.createdTo() != null ? CREATED_TO : 0);
+    }
+
+    private static <Q extends Query> Q bind(Q query, SearchOrderRequest request) {
+        if (StringUtils.hasText(request.phone())) {
+            query.setParameter("phone", request.phone());
+        }
+        if (StringUtils.hasText(request.firstName())) {
+            query.setParameter("firstName", OrderSpecifications.containing(request.firstName()));
+        }
+        if (StringUtils.hasText(request.lastName())) {
+            query.setParameter("lastName", OrderSpecifications.containing(request.lastName()));
+        }
+        if (request.createdFrom() != null) {
+            query.setParameter("createdFrom", request.createdFrom());
+        }
+        if (request.createdTo() != null) {
+            query.setParameter("createdTo", request.createdTo());
+        }
+        return query;
+    }
+}
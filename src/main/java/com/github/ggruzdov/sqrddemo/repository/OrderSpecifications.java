@@ -0,0 +1,72 @@
+package com.github.ggruzdov.sqrddemo.repository;
+
+import com.github.ggruzdov.sqrddemo.model.Order;
+import com.github.ggruzdov.sqrddemo.request.OrderCursor;
+import com.github.ggruzdov.sqrddemo.request.SearchOrderRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.util.StringUtils;
+
+public final class OrderSpecifications {
+
+    private static final char ESCAPE = '\\';
+
+    private OrderSpecifications() {
+    }
+
+    public static Specification<Order> matching(SearchOrderRequest request) {
+        Specification<Order> spec = Specification.where(null);
+
+        if (StringUtils.hasText(request.phone())) {
+            spec = spec.and((root, query, cb) ->
+                cb.equal(root.get("customerPhone"), request.phone()));
+        }
+
+        if (StringUtils.hasText(request.firstName())) {
+            spec = spec.and((root, query, cb) ->
+                cb.like(root.get("customerFirstName"), containing(request.firstName()), ESCAPE));
+        }
+
+        if (StringUtils.hasText(request.lastName())) {
+            spec = spec.and((root, query, cb) ->
+                cb.like(root.get("customerLastName"), containing(request.lastName()), ESCAPE));
+        }
+
+        if (request.createdFrom() != null) {
+            spec = spec.and((root, query, cb) ->
+                cb.greaterThanOrEqualTo(root.get("createdAt"), request.createdFrom()));
+        }
+
+        if (request.createdTo() != null) {
+            spec = spec.and((root, query, cb) ->
+                cb.lessThan(root.get("createdAt"), request.createdTo()));
+        }
+
+        return spec;
+    }
+
+    /**
+     * Substring pattern served by the pg_trgm indexes on customer names, wildcards of the value are matched literally.
+     */
+    public static String containing(String value) {
+        var escaped = value
+            .replace(String.valueOf(ESCAPE), String.valueOf(ESCAPE) + ESCAPE)
+            .replace("%", ESCAPE + "%")
+            .replace("_", ESCAPE + "_");
+        return "%" + escaped + "%";
+    }
+
+    /**
+     * Orders strictly after the cursor in the {@link OrderCursor#SORT} ordering.
+     */
+    public static Specification<Order> after(OrderCursor cursor) {
+        // The redundant bound on created_at is what starts the index scan at the cursor, PostgreSQL can't
+        // derive it from the disjunction alone and would filter all the preceding rows
+        return (root, query, cb) -> cb.and(
+            cb.lessThanOrEqualTo(root.get("createdAt"), cursor.createdAt()),
+            cb.or(
+                cb.lessThan(root.get("createdAt"), cursor.createdAt()),
+                cb.lessThan(root.get("id"), cursor.id())
+            )
+        );
+    }
+}
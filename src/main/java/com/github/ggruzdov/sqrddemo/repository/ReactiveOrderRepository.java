@@ -0,0 +1,199 @@
+package com.github.ggruzdov.sqrddemo.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ggruzdov.sqrddemo.model.Order;
+import com.github.ggruzdov.sqrddemo.request.OrderSort;
+import com.github.ggruzdov.sqrddemo.request.SearchOrderRequest;
+import com.github.ggruzdov.sqrddemo.response.SearchOrderResponse;
+import io.r2dbc.spi.Readable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Orders over R2DBC for the reactive stack, writing the same rows as JPA and searching with the same SQL as the
+ * JDBC queries, see {@link OrderFilterSql}.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveOrderRepository {
+
+    // Same as the allocation size of the id generator of Order, both take blocks from orders_seq
+    private static final int ALLOCATION_SIZE = 50;
+
+    private static final String NEXT_ID_BLOCK = "SELECT nextval('orders_seq')";
+
+    private static final String INSERT = """
+        INSERT INTO orders (id, version, customer_first_name, customer_last_name, customer_phone, delivery_address,
+                            pilotes, total_price, created_at, updated_at)
+        VALUES ($1, $2, $3, $4, $5, $6, $7, $8, $9, $10)
+        """;
+
+    private static final String SELECT = """
+        SELECT id, customer_first_name, customer_last_name, customer_phone, delivery_address, pilotes, total_price,
+               created_at, version
+        FROM orders
+        WHERE TRUE
+        """;
+
+    private static final String COUNT = """
+        SELECT count(*)
+        FROM orders
+        WHERE TRUE
+        """;
+
+    private static final String EXPLAIN = """
+        EXPLAIN (FORMAT JSON)
+        SELECT 1
+        FROM orders
+        WHERE TRUE
+        """;
+
+    private final DatabaseClient databaseClient;
+    private final ObjectMapper objectMapper;
+    // The block of ids of the last nextval, the same way Hibernate's pooled optimizer hands them out
+    private int nextId;
+    private int lastId = -1;
+
+    public ReactiveOrderRepository(DatabaseClient databaseClient, ObjectMapper objectMapper) {
+        this.databaseClient = databaseClient;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Inserts the order with the next id, created and updated now.
+     */
+    public Mono<Order> insert(Order order) {
+        return nextId().flatMap(id -> {
+            var now = Instant.now();
+            order.setId(id);
+            order.setCreatedAt(now);
+            order.setUpdatedAt(now);
+            return databaseClient.sql(INSERT)
+                .bind(0, id)
+                .bind(1, order.getVersion())
+                .bind(2, order.getCustomerFirstName())
+                .bind(3, order.getCustomerLastName())
+                .bind(4, order.getCustomerPhone())
+                .bind(5, order.getDeliveryAddress())
+                .bind(6, order.getPilotes())
+                .bind(7, order.getTotalPrice())
+                .bind(8, now)
+                .bind(9, now)
+                .then()
+                .thenReturn(order);
+        });
+    }
+
+    /**
+     * Orders matching the filters in the requested order, up to {@code limit} from {@code offset}.
+     */
+    public Mono<List<SearchOrderResponse>> search(SearchOrderRequest request, long offset, int limit) {
+        var filter = OrderFilterSql.of(request);
+        var sql = SELECT + numbered(filter.conditions()) + orderBy(request.sort())
+            + "LIMIT $" + (filter.args().length + 1) + " OFFSET $" + (filter.args().length + 2);
+
+        return bind(databaseClient.sql(sql), filter)
+            .bind(filter.args().length, limit)
+            .bind(filter.args().length + 1, offset)
+            .map(ReactiveOrderRepository::toResponse)
+            .all()
+            .collectList();
+    }
+
+    public Mono<Long> count(SearchOrderRequest request) {
+        var filter = OrderFilterSql.of(request);
+        return bind(databaseClient.sql(COUNT + numbered(filter.conditions())), filter)
+            .map(row -> row.get(0, Long.class))
+            .one();
+    }
+
+    /**
+     * Planner estimate of the orders matching the filters, see {@link OrderCountEstimator}.
+     */
+    public Mono<Long> estimate(SearchOrderRequest request) {
+        var filter = OrderFilterSql.of(request);
+        return bind(databaseClient.sql(EXPLAIN + numbered(filter.conditions())), filter)
+            .map(row -> row.get(0, String.class))
+            .one()
+            .map(plan -> {
+                try {
+                    return objectMapper.readTree(plan).path(0).path("Plan").path("Plan Rows").asLong();
+                } catch (JsonProcessingException e) {
+                    throw new IllegalStateException("Unexpected plan of the count estimate: " + plan, e);
+                }
+            });
+    }
+
+    private Mono<Integer> nextId() {
+        synchronized (this) {
+            if (nextId <= lastId) {
+                return Mono.just(nextId++);
+            }
+        }
+        return databaseClient.sql(NEXT_ID_BLOCK)
+            .map(row -> row.get(0, Long.class))
+            .one()
+            .map(this::allocate);
+    }
+
+    // Blocks are disjoint, so a block fetched concurrently by another insert only replaces this one, its ids are
+    // skipped as Hibernate skips the rest of a block on restart
+    private synchronized int allocate(long hi) {
+        nextId = (int) Math.max(1, hi - ALLOCATION_SIZE + 1);
+        lastId = (int) hi;
+        return nextId++;
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, OrderFilterSql filter) {
+        var args = filter.args();
+        for (int i = 0; i < args.length; i++) {
+            spec = spec.bind(i, args[i] instanceof Timestamp timestamp ? timestamp.toInstant() : args[i]);
+        }
+        return spec;
+    }
+
+    // R2DBC Postgres takes $1, $2... instead of JDBC placeholders
+    private static String numbered(String conditions) {
+        var sql = new StringBuilder(conditions.length() + 8);
+        var index = 0;
+        for (int i = 0; i < conditions.length(); i++) {
+            var c = conditions.charAt(i);
+            if (c == '?') {
+                sql.append('$').append(++index);
+            } else {
+                sql.append(c);
+            }
+        }
+        return sql.toString();
+    }
+
+    private static String orderBy(OrderSort sort) {
+        var column = switch (sort.field()) {
+            case CREATED_AT -> "created_at";
+            case TOTAL_PRICE -> "total_price";
+        };
+        var direction = sort.direction().name();
+        return "ORDER BY " + column + " " + direction + ", id " + direction + "\n";
+    }
+
+    private static SearchOrderResponse toResponse(Readable row) {
+        return new SearchOrderResponse(
+            row.get("id", Integer.class),
+            row.get("customer_first_name", String.class),
+            row.get("customer_last_name", String.class),
+            row.get("customer_phone", String.class),
+            row.get("delivery_address", String.class),
+            row.get("pilotes", Integer.class),
+            SearchOrderResponse.formatPrice(row.get("total_price", Integer.class)),
+            row.get("created_at", Instant.class),
+            row.get("version", Integer.class)
+        );
+    }
+}
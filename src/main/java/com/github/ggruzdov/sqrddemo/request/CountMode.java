@@ -0,0 +1,29 @@
+package com.github.ggruzdov.sqrddemo.request;
+
+import java.util.Arrays;
+
+/**
+ * How an offset search tells the total number of matching orders.
+ */
+public enum CountMode {
+
+    /**
+     * Counts the matching orders with a second query.
+     */
+    EXACT,
+    /**
+     * Takes the planner estimate of the matching orders, no rows are counted.
+     */
+    ESTIMATE,
+    /**
+     * Leaves the total out, only whether there is a next page.
+     */
+    NONE;
+
+    public static CountMode from(String value) {
+        return Arrays.stream(values())
+            .filter(mode -> mode.name().equalsIgnoreCase(value))
+            .findFirst()
+            .orElseThrow(() -> new InvalidRequestException("Unsupported count mode: " + value));
+    }
+}
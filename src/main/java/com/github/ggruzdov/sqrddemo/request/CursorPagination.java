@@ -0,0 +1,22 @@
+package com.github.ggruzdov.sqrddemo.request;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+
+/**
+ * Keyset pagination, {@code after} is the opaque cursor returned by the previous page, absent for the first one.
+ */
+public record CursorPagination(
+    String after,
+    @Min(1)
+    @Max(1000)
+    Integer limit
+) {
+    public static CursorPagination DEFAULT = new CursorPagination(null, 20);
+
+    public CursorPagination {
+        if (limit == null) {
+            limit = DEFAULT.limit();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.ggruzdov.sqrddemo.request;
+
+import java.util.Arrays;
+
+public enum ExportFormat {
+
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public static ExportFormat from(String value) {
+        return Arrays.stream(values())
+            .filter(format -> format.name().equalsIgnoreCase(value))
+            .findFirst()
+            .orElseThrow(() -> new InvalidRequestException("Unsupported export format: " + value));
+    }
+}
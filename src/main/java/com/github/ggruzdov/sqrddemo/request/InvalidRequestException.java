@@ -0,0 +1,15 @@
+package com.github.ggruzdov.sqrddemo.request;
+
+/**
+ * Thrown when a request parameter can't be parsed, answered with 400.
+ */
+public class InvalidRequestException extends RuntimeException {
+
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+
+    public InvalidRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,34 @@
+package com.github.ggruzdov.sqrddemo.request;
+
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Position of an order in the keyset ordering {@link #SORT}, exposed to clients as an opaque token.
+ */
+public record OrderCursor(
+    Instant createdAt,
+    Integer id
+) {
+    public static final Sort SORT = Sort.by(Sort.Direction.DESC, "createdAt", "id");
+
+    private static final String SEPARATOR = ",";
+
+    public String encode() {
+        var raw = createdAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static OrderCursor decode(String token) {
+        try {
+            var raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            var parts = raw.split(SEPARATOR, 2);
+            return new OrderCursor(Instant.parse(parts[0]), Integer.valueOf(parts[1]));
+        } catch (RuntimeException e) {
+            throw new InvalidRequestException("Invalid cursor: " + token, e);
+        }
+    }
+}
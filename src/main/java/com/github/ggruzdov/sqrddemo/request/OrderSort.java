@@ -0,0 +1,55 @@
+package com.github.ggruzdov.sqrddemo.request;
+
+import org.springframework.data.domain.Sort;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Order of the offset search, {@code field[,asc|desc]} in a request, newest first by default. Ties are broken by id
+ * in the same direction, so that pages neither overlap nor skip orders.
+ */
+public record OrderSort(
+    Field field,
+    Sort.Direction direction
+) {
+
+    public static final OrderSort DEFAULT = new OrderSort(Field.CREATED_AT, Sort.Direction.DESC);
+
+    public enum Field {
+
+        CREATED_AT("createdAt"),
+        TOTAL_PRICE("totalPrice");
+
+        private final String property;
+
+        Field(String property) {
+            this.property = property;
+        }
+
+        public String property() {
+            return property;
+        }
+    }
+
+    /**
+     * Parses {@code field[,asc|desc]}, ascending when no direction is given. Used by the data binder to convert
+     * the request parameter.
+     */
+    public static OrderSort from(String value) {
+        var parts = value.split(",", -1);
+        if (parts.length > 2) {
+            throw new InvalidRequestException("Unsupported sort: " + value);
+        }
+
+        var field = Arrays.stream(Field.values())
+            .filter(candidate -> candidate.property().equals(parts[0].trim()))
+            .findFirst()
+            .orElseThrow(() -> new InvalidRequestException("Unsupported sort field: " + parts[0]));
+        var direction = parts.length == 2
+            ? Sort.Direction.fromOptionalString(parts[1].trim().toUpperCase(Locale.ROOT))
+                .orElseThrow(() -> new InvalidRequestException("Unsupported sort direction: " + parts[1]))
+            : Sort.Direction.ASC;
+        return new OrderSort(field, direction);
+    }
+}
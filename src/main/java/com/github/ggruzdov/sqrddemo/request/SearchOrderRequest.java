@@ -1,14 +1,30 @@
 package com.github.ggruzdov.sqrddemo.request;
 
+import jakarta.validation.Valid;
+
+import java.time.Instant;
+
 public record SearchOrderRequest(
     String phone,
     String firstName,
     String lastName,
-    Pagination pagination
+    // Orders created within [createdFrom, createdTo), only the partitions of the range are searched
+    Instant createdFrom,
+    Instant createdTo,
+    OrderSort sort,
+    Pagination pagination,
+    @Valid
+    CursorPagination cursor
 ) {
     public SearchOrderRequest {
+        if (sort == null) {
+            sort = OrderSort.DEFAULT;
+        }
         if (pagination == null) {
             pagination = Pagination.DEFAULT;
         }
+        if (cursor == null) {
+            cursor = CursorPagination.DEFAULT;
+        }
     }
 }
@@ -17,6 +17,9 @@ public record UpdateOrderRequest(
     String deliveryAddress,
     @NotNull
     @Pattern(regexp = "^(5|10|15)$", message = "Pilotes quantity must be either 5, 10, or 15")
-    String pilotes
+    String pilotes,
+    // Expected current version of the order, the update is rejected if it has changed since
+    @NotNull
+    Integer version
 ) {
 }
@@ -0,0 +1,12 @@
+package com.github.ggruzdov.sqrddemo.response;
+
+import java.util.List;
+
+/**
+ * Keyset pagination page, {@code next} is {@code null} on the last page.
+ */
+public record CursorPage<T>(
+    List<T> content,
+    String next
+) {
+}
@@ -12,7 +12,8 @@ public record SearchOrderResponse(
     String deliveryAddress,
     Integer pilotes,
     String totalPrice,
-    Instant createdAt
+    Instant createdAt,
+    Integer version
 ) {
     public static SearchOrderResponse from(Order order) {
         return new SearchOrderResponse(
@@ -22,8 +23,13 @@ public record SearchOrderResponse(
             order.getCustomerPhone(),
             order.getDeliveryAddress(),
             order.getPilotes(),
-            String.format("%.2f", order.getTotalPrice() / 100.0),
-            order.getCreatedAt()
+            formatPrice(order.getTotalPrice()),
+            order.getCreatedAt(),
+            order.getVersion()
         );
     }
+
+    public static String formatPrice(int priceInCents) {
+        return String.format("%.2f", priceInCents / 100.0);
+    }
 }
@@ -0,0 +1,53 @@
+package com.github.ggruzdov.sqrddemo.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.github.ggruzdov.sqrddemo.request.CountMode;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+/**
+ * Offset pagination page, shaped like {@link org.springframework.data.web.PagedModel} with {@code hasNext} and
+ * the count mode added to the metadata. The totals are left out with {@link CountMode#NONE} and are approximate
+ * with {@link CountMode#ESTIMATE}, {@code hasNext} is exact in every mode.
+ */
+public record SearchPage<T>(
+    List<T> content,
+    Metadata page
+) {
+
+    public static <T> SearchPage<T> of(Page<T> page) {
+        return new SearchPage<>(page.getContent(), new Metadata(
+            page.getSize(), page.getNumber(), page.getTotalElements(), (long) page.getTotalPages(), page.hasNext(), CountMode.EXACT
+        ));
+    }
+
+    public static <T> SearchPage<T> of(Slice<T> slice) {
+        return new SearchPage<>(slice.getContent(), new Metadata(
+            slice.getSize(), slice.getNumber(), null, null, slice.hasNext(), CountMode.NONE
+        ));
+    }
+
+    /**
+     * @param estimate planner estimate of the matching orders, raised to what the slice proves to exist
+     */
+    public static <T> SearchPage<T> of(Slice<T> slice, long estimate) {
+        var seen = slice.getPageable().getOffset() + slice.getNumberOfElements() + (slice.hasNext() ? 1 : 0);
+        var total = Math.max(estimate, seen);
+        return new SearchPage<>(slice.getContent(), new Metadata(
+            slice.getSize(), slice.getNumber(), total, (total + slice.getSize() - 1) / slice.getSize(), slice.hasNext(), CountMode.ESTIMATE
+        ));
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Metadata(
+        long size,
+        long number,
+        Long totalElements,
+        Long totalPages,
+        boolean hasNext,
+        CountMode count
+    ) {
+    }
+}
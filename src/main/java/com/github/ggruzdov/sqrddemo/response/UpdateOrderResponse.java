@@ -0,0 +1,7 @@
+package com.github.ggruzdov.sqrddemo.response;
+
+public record UpdateOrderResponse(
+    Integer id,
+    Integer version
+) {
+}
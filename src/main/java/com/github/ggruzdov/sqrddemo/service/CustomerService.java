@@ -1,34 +1,131 @@
 package com.github.ggruzdov.sqrddemo.service;
 
-import com.github.ggruzdov.sqrddemo.model.Customer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.ggruzdov.sqrddemo.config.UserCacheProperties;
+import com.github.ggruzdov.sqrddemo.profiling.RequestPhase;
 import com.github.ggruzdov.sqrddemo.repository.CustomerRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Optional;
 
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class CustomerService implements UserDetailsService {
 
     private final CustomerRepository customerRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final Cache<String, Optional<Credentials>> users;
+
+    public CustomerService(
+        CustomerRepository customerRepository,
+        PasswordEncoder passwordEncoder,
+        UserCacheProperties userCacheProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.customerRepository = customerRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.users = Caffeine.newBuilder()
+            .maximumSize(userCacheProperties.getMaximumSize())
+            .expireAfter(new CredentialsExpiry(userCacheProperties.getTtl(), userCacheProperties.getNegativeTtl()))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "users");
+    }
 
     @Override
     public UserDetails loadUserByUsername(String phone) throws UsernameNotFoundException {
-        Optional<Customer> customer = customerRepository.findByPhone(phone);
-        if (customer.isEmpty()) {
+        Optional<Credentials> credentials;
+        try (var phase = RequestPhase.start("user")) {
+            credentials = users.get(phone, this::findCredentials);
+        }
+        if (credentials.isEmpty()) {
             throw new UsernameNotFoundException("User not found with phone: " + phone);
         }
 
+        // A new instance every time, since the password of the returned user is erased after authentication
         return new User(
-            customer.get().getPhone(),
-            customer.get().getPassword(),
+            credentials.get().phone(),
+            credentials.get().password(),
             new ArrayList<>()
         );
     }
+
+    /**
+     * Called on successful login, stores a new hash of the password when the stored one is weaker than the configured
+     * one. Best effort, while the hashing queue is full the stored hash is kept and the next login tries again,
+     * so that a correct login isn't rejected for the sake of the upgrade.
+     */
+    public void rehashIfNecessary(String phone, String rawPassword) {
+        var storedPassword = loadUserByUsername(phone).getPassword();
+        if (!passwordEncoder.upgradeEncoding(storedPassword)) {
+            return;
+        }
+
+        String newPassword;
+        try {
+            newPassword = passwordEncoder.encode(rawPassword);
+        } catch (TaskRejectedException e) {
+            log.info("Password hashing is busy, the password of {} is rehashed at a later login", phone);
+            return;
+        }
+        customerRepository.updatePassword(phone, newPassword);
+        evictUser(phone);
+    }
+
+    /**
+     * Must be called whenever the customer's password changes, otherwise the old one keeps working till the entry expires.
+     */
+    public void evictUser(String phone) {
+        users.invalidate(phone);
+    }
+
+    public CacheStats userCacheStats() {
+        return users.stats();
+    }
+
+    private Optional<Credentials> findCredentials(String phone) {
+        return customerRepository.findByPhone(phone)
+            .map(customer -> new Credentials(customer.getPhone(), customer.getPassword()));
+    }
+
+    private record Credentials(
+        String phone,
+        String password
+    ) {
+    }
+
+    private record CredentialsExpiry(
+        Duration ttl,
+        Duration negativeTtl
+    ) implements Expiry<String, Optional<Credentials>> {
+
+        @Override
+        public long expireAfterCreate(String phone, Optional<Credentials> credentials, long currentTime) {
+            return credentials.isPresent() ? ttl.toNanos() : negativeTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String phone, Optional<Credentials> credentials, long currentTime, long currentDuration) {
+            return expireAfterCreate(phone, credentials, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String phone, Optional<Credentials> credentials, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
@@ -0,0 +1,175 @@
+package com.github.ggruzdov.sqrddemo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ggruzdov.sqrddemo.config.OrderStreamProperties;
+import com.github.ggruzdov.sqrddemo.response.SearchOrderResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.stereotype.Component;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Listens to the order events announced by the database, see {@code V1.08__notify_order_events.sql}, hands them
+ * to the {@link OrderStreamBroadcaster}, the orders of a notification at once, and invalidates the searches of their
+ * phones in the {@link OrderSearchCache}. The events of the writes of every node arrive, whichever way they were made,
+ * over a single connection per node, opened outside the pool since it is held for good. Events committed while the
+ * connection is lost are missed, so once it is back all streams are closed for their clients to catch up and the
+ * cached searches are dropped.
+ */
+@Slf4j
+@Component
+public class OrderEventListener implements AutoCloseable {
+
+    private static final String CHANNEL = "order_events";
+    private static final int POLL_MILLIS = 500;
+
+    private final OrderStreamBroadcaster broadcaster;
+    private final OrderSearchCache searchCache;
+    private final ObjectMapper objectMapper;
+    private final JdbcConnectionDetails connectionDetails;
+    private final Duration reconnectDelay;
+    private final Counter events;
+    private final Thread listener;
+    private volatile boolean running = true;
+
+    public OrderEventListener(
+        OrderStreamBroadcaster broadcaster,
+        OrderSearchCache searchCache,
+        ObjectMapper objectMapper,
+        JdbcConnectionDetails connectionDetails,
+        OrderStreamProperties properties,
+        MeterRegistry meterRegistry
+    ) {
+        this.broadcaster = broadcaster;
+        this.searchCache = searchCache;
+        this.objectMapper = objectMapper;
+        this.connectionDetails = connectionDetails;
+        this.reconnectDelay = properties.getReconnectDelay();
+        this.events = Counter.builder("orders.stream.events")
+            .description("Order events received from the database")
+            .register(meterRegistry);
+        this.listener = Thread.ofPlatform()
+            .name("order-event-listener")
+            .daemon()
+            .unstarted(this::listen);
+    }
+
+    @PostConstruct
+    void start() {
+        listener.start();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        listener.join();
+    }
+
+    private void listen() {
+        var lost = false;
+        while (running) {
+            try (var connection = DriverManager.getConnection(
+                connectionDetails.getJdbcUrl(), connectionDetails.getUsername(), connectionDetails.getPassword()
+            )) {
+                try (var statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                if (lost) {
+                    log.info("Listening to order events again");
+                    broadcaster.disconnectAll();
+                    searchCache.invalidateAll();
+                    lost = false;
+                }
+
+                var pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    var notifications = pgConnection.getNotifications(POLL_MILLIS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (var notification : notifications) {
+                        publish(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Lost the connection listening to order events, retrying in {}: {}", reconnectDelay, e.getMessage());
+                lost = true;
+                try {
+                    Thread.sleep(reconnectDelay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void publish(String payload) {
+        OrderEvents batch;
+        try {
+            batch = objectMapper.readValue(payload, OrderEvents.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Skipping malformed order events: {}", payload, e);
+            return;
+        }
+
+        events.increment(batch.orders().size());
+        // Writes of this node have invalidated their searches already, the ones of other nodes only show up here
+        var phones = new HashSet<String>();
+        for (var order : batch.orders()) {
+            phones.add(order.customerPhone());
+            if (order.previousPhone() != null) {
+                phones.add(order.previousPhone());
+            }
+        }
+        searchCache.invalidate(phones);
+        broadcaster.publish(batch.type(), batch.orders().stream()
+            .map(order -> new SearchOrderResponse(
+                order.id(),
+                order.customerFirstName(),
+                order.customerLastName(),
+                order.customerPhone(),
+                order.deliveryAddress(),
+                order.pilotes(),
+                SearchOrderResponse.formatPrice(order.totalPrice()),
+                order.createdAt(),
+                order.version()
+            ))
+            .toList());
+    }
+
+    private record OrderEvents(
+        String type,
+        List<OrderEvent> orders
+    ) {
+    }
+
+    private record OrderEvent(
+        Integer id,
+        String customerFirstName,
+        String customerLastName,
+        String customerPhone,
+        // The phone before the update, null for created orders
+        String previousPhone,
+        String deliveryAddress,
+        Integer pilotes,
+        int totalPrice,
+        Instant createdAt,
+        Integer version
+    ) {
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.ggruzdov.sqrddemo.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.ggruzdov.sqrddemo.model.Order;
+import com.github.ggruzdov.sqrddemo.repository.OrderExportRepository;
+import com.github.ggruzdov.sqrddemo.request.ExportFormat;
+import com.github.ggruzdov.sqrddemo.request.SearchOrderRequest;
+import com.github.ggruzdov.sqrddemo.response.SearchOrderResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Service
+@RequiredArgsConstructor
+public class OrderExportService {
+
+    private static final String CSV_HEADER =
+        "id,customerFirstName,customerLastName,customerPhone,deliveryAddress,pilotes,totalPrice,createdAt,version\n";
+
+    private final OrderExportRepository orderExportRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Writes the matching orders as they are read, so memory use doesn't depend on their number. A failed write,
+     * e.g. the client went away, aborts the query and rolls back the transaction.
+     */
+    @Transactional(readOnly = true)
+    public void exportOrders(SearchOrderRequest request, ExportFormat format, OutputStream out) throws IOException {
+        switch (format) {
+            case NDJSON -> {
+                var written = new AtomicBoolean();
+                try (var values = objectMapper.writerFor(SearchOrderResponse.class)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                    .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .withRootValueSeparator("\n")
+                    .writeValues(out)) {
+                    forEach(request, order -> {
+                        values.write(SearchOrderResponse.from(order));
+                        written.set(true);
+                    });
+                }
+                // The separator goes only between values, yet every line has to be terminated
+                if (written.get()) {
+                    out.write('\n');
+                }
+            }
+            case CSV -> {
+                var writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                writer.write(CSV_HEADER);
+                forEach(request, order -> writeCsv(writer, SearchOrderResponse.from(order)));
+                writer.flush();
+            }
+        }
+    }
+
+    private void forEach(SearchOrderRequest request, IOConsumer<Order> consumer) throws IOException {
+        try {
+            orderExportRepository.forEach(request, unchecked(consumer));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void writeCsv(Writer writer, SearchOrderResponse order) throws IOException {
+        var line = Stream.of(
+                order.id(),
+                order.customerFirstName(),
+                order.customerLastName(),
+                order.customerPhone(),
+                order.deliveryAddress(),
+                order.pilotes(),
+                order.totalPrice(),
+                order.createdAt(),
+                order.version()
+            )
+            .map(value -> csvField(String.valueOf(value)))
+            .collect(Collectors.joining(",", "", "\n"));
+        writer.write(line);
+    }
+
+    // RFC 4180 quoting, only for fields that need it
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static <T> Consumer<T> unchecked(IOConsumer<T> consumer) {
+        return value -> {
+            try {
+                consumer.accept(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    @FunctionalInterface
+    private interface IOConsumer<T> {
+        void accept(T value) throws IOException;
+    }
+}
@@ -0,0 +1,198 @@
+package com.github.ggruzdov.sqrddemo.service;
+
+import com.github.ggruzdov.sqrddemo.config.GroupCommitProperties;
+import com.github.ggruzdov.sqrddemo.config.ReadYourWrites;
+import com.github.ggruzdov.sqrddemo.model.Order;
+import com.github.ggruzdov.sqrddemo.repository.OrderRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Writes placed orders in batches, one transaction and so one commit per batch instead of per order. A single writer
+ * thread takes the first queued order, waits up to the linger time for more, up to the maximum batch size, and
+ * inserts them together. Callers block till the batch of their order commits, so they still get the id of
+ * a durable order back, or up to the commit timeout. When the queue is full, placing fails fast with
+ * {@link TaskRejectedException}, and so do the orders left in the queue once the writer has stopped. Callers giving up
+ * on the commit get {@link QueryTimeoutException}, their order may still be written.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.group-commit", name = "enabled", havingValue = "true")
+public class OrderGroupCommitWriter implements AutoCloseable {
+
+    private static final long SHUTDOWN_POLL_MILLIS = 100;
+
+    private final OrderRepository orderRepository;
+    private final OrderSearchCache searchCache;
+    private final ReadYourWrites readYourWrites;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<PendingOrder> queue;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final Duration commitTimeout;
+    private final DistributionSummary batchSizeSummary;
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile boolean stopped;
+
+    public OrderGroupCommitWriter(
+        OrderRepository orderRepository,
+        OrderSearchCache searchCache,
+        ReadYourWrites readYourWrites,
+        PlatformTransactionManager transactionManager,
+        GroupCommitProperties properties,
+        MeterRegistry meterRegistry
+    ) {
+        this.orderRepository = orderRepository;
+        this.searchCache = searchCache;
+        this.readYourWrites = readYourWrites;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.maxBatchSize = properties.getMaxBatchSize();
+        this.lingerNanos = properties.getLinger().toNanos();
+        this.commitTimeout = properties.getCommitTimeout();
+        this.batchSizeSummary = DistributionSummary.builder("orders.ingestion.batch.size")
+            .description("Orders written in one group commit")
+            .baseUnit("orders")
+            .register(meterRegistry);
+        Gauge.builder("orders.ingestion.queue.depth", queue, BlockingQueue::size)
+            .description("Placed orders waiting to be written")
+            .register(meterRegistry);
+        this.writer = Thread.ofPlatform()
+            .name("order-writer")
+            .daemon()
+            .unstarted(this::drain);
+    }
+
+    @PostConstruct
+    void start() {
+        writer.start();
+    }
+
+    /**
+     * Queues the order and waits till it's committed.
+     */
+    public Order place(Order order) {
+        var pending = new PendingOrder(order, new CompletableFuture<>());
+        if (!running || !queue.offer(pending)) {
+            throw rejected();
+        }
+        // The writer may have stopped right before the order was queued, then nothing takes it anymore
+        if (stopped && queue.remove(pending)) {
+            throw rejected();
+        }
+
+        try {
+            return pending.result().get(commitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new OrderWriteException("Unable to write the order", e.getCause());
+        } catch (TimeoutException e) {
+            throw new QueryTimeoutException("The order wasn't committed within " + commitTimeout + ", it may still be written", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TaskRejectedException("Interrupted while waiting for the order to be written, it may still be written", e);
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        // Orders queued already are still written
+        running = false;
+        writer.join();
+    }
+
+    private void drain() {
+        var batch = new ArrayList<PendingOrder>(maxBatchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                try {
+                    var first = queue.poll(SHUTDOWN_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+
+                    var deadline = System.nanoTime() + lingerNanos;
+                    while (batch.size() < maxBatchSize) {
+                        var next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                }
+
+                if (!batch.isEmpty()) {
+                    write(batch);
+                    batch.clear();
+                }
+            }
+        } finally {
+            running = false;
+            stopped = true;
+            var rejected = rejected();
+            batch.forEach(pending -> pending.result().completeExceptionally(rejected));
+            PendingOrder left;
+            while ((left = queue.poll()) != null) {
+                left.result().completeExceptionally(rejected);
+            }
+        }
+    }
+
+    private void write(List<PendingOrder> batch) {
+        batchSizeSummary.record(batch.size());
+        try {
+            var saved = transactionTemplate.execute(status -> {
+                var orders = orderRepository.saveAllAndFlush(batch.stream().map(PendingOrder::order).toList());
+                var phones = orders.stream().map(Order::getCustomerPhone).collect(Collectors.toSet());
+                searchCache.invalidate(phones);
+                readYourWrites.record(phones);
+                return orders;
+            });
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(saved.get(i));
+            }
+        } catch (Throwable e) {
+            // Requests are validated already, so it's the database failing and the whole batch with it.
+            // Errors fail the batch too, the writer has to go on for the orders queued after it.
+            log.error("Unable to write a batch of {} orders", batch.size(), e);
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+        }
+    }
+
+    private static TaskRejectedException rejected() {
+        return new TaskRejectedException("Too many orders are being placed, please try again later");
+    }
+
+    private record PendingOrder(
+        Order order,
+        CompletableFuture<Order> result
+    ) {
+    }
+}
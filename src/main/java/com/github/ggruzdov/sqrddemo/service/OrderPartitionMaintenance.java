@@ -0,0 +1,126 @@
+package com.github.ggruzdov.sqrddemo.service;
+
+import com.github.ggruzdov.sqrddemo.config.OrderPartitionProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the monthly partitions of orders, see the V1.06 migration. Creates the partitions of the upcoming months
+ * before any order goes there, and moves the partitions past the retention to the archive schema, where they are
+ * no longer searched but can be dumped or attached back. Runs at startup and then every maintenance interval,
+ * instances running at once take turns on an advisory lock.
+ */
+@Slf4j
+@Service
+public class OrderPartitionMaintenance {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("orders_p(\\d{6})");
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final long LOCK_KEY = "orders partitions".hashCode();
+
+    private static final String PARTITIONS = """
+        SELECT c.relname
+        FROM pg_inherits i
+                 JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'orders'::regclass
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderPartitionProperties properties;
+
+    public OrderPartitionMaintenance(
+        DataSource dataSource,
+        PlatformTransactionManager transactionManager,
+        OrderPartitionProperties properties
+    ) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.order-partitions.maintenance-interval}")
+    public void maintain() {
+        var currentMonth = YearMonth.now(ZoneOffset.UTC);
+        createPartitions(currentMonth, currentMonth.plusMonths(properties.getPremakeMonths()));
+        if (properties.getRetentionMonths() != null) {
+            archivePartitionsBefore(currentMonth.minusMonths(properties.getRetentionMonths()));
+        }
+    }
+
+    /**
+     * Creates the missing partitions of the months from {@code first} to {@code last}, both included.
+     */
+    public void createPartitions(YearMonth first, YearMonth last) {
+        locked(() -> {
+            var existing = partitions();
+            for (var month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+                if (!existing.contains(month)) {
+                    jdbcTemplate.execute(String.format(
+                        "CREATE TABLE %s PARTITION OF orders FOR VALUES FROM ('%s') TO ('%s')",
+                        name(month), start(month), start(month.plusMonths(1))
+                    ));
+                    log.info("Created partition {}", name(month));
+                }
+            }
+        });
+    }
+
+    /**
+     * Detaches the partitions of the months before {@code month} and moves them to the archive schema.
+     */
+    public void archivePartitionsBefore(YearMonth month) {
+        locked(() -> {
+            var archiveSchema = properties.getArchiveSchema();
+            jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + archiveSchema);
+            for (var partition : partitions()) {
+                if (partition.isBefore(month)) {
+                    jdbcTemplate.execute("ALTER TABLE orders DETACH PARTITION " + name(partition));
+                    jdbcTemplate.execute("ALTER TABLE " + name(partition) + " SET SCHEMA " + archiveSchema);
+                    log.info("Archived partition {} to {}", name(partition), archiveSchema);
+                }
+            }
+        });
+    }
+
+    // One transaction, so that the lock is released however it ends, and DDL waiting for searches
+    // to release the table gives up instead of queueing every search behind it
+    private void locked(Runnable maintenance) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("SET LOCAL lock_timeout = '10s'");
+            jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + LOCK_KEY + ")");
+            maintenance.run();
+        });
+    }
+
+    private Set<YearMonth> partitions() {
+        var months = new TreeSet<YearMonth>();
+        for (var name : jdbcTemplate.queryForList(PARTITIONS, String.class)) {
+            var matcher = PARTITION_NAME.matcher(name);
+            if (matcher.matches()) {
+                months.add(YearMonth.parse(matcher.group(1), MONTH));
+            }
+        }
+        return months;
+    }
+
+    private static String name(YearMonth month) {
+        return "orders_p" + month.format(MONTH);
+    }
+
+    private static String start(YearMonth month) {
+        return month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant().toString();
+    }
+}
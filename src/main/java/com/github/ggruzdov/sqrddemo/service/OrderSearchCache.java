@@ -0,0 +1,158 @@
+package com.github.ggruzdov.sqrddemo.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.ggruzdov.sqrddemo.config.SearchCacheProperties;
+import com.github.ggruzdov.sqrddemo.request.CountMode;
+import com.github.ggruzdov.sqrddemo.request.CursorPagination;
+import com.github.ggruzdov.sqrddemo.request.SearchOrderRequest;
+import com.github.ggruzdov.sqrddemo.response.SearchOrderResponse;
+import com.github.ggruzdov.sqrddemo.response.SearchPage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache of search results keyed by the normalized request and the count mode. Writes invalidate results filtered by the phones they touch
+ * and, since name filters can't be matched cheaply, all results not filtered by phone.
+ * <p>
+ * Invalidation doesn't look for the entries, a write only bumps the generation of its phones and the one of the results
+ * without a phone filter. Every result is stamped with the generation its search started at and is stale once that
+ * has moved on. A stale result is dropped when it's looked up, till then it takes up room in the cache, so results
+ * that aren't searched again get evicted by size sooner than they used to.
+ * <p>
+ * The cache is per node. Writes of other nodes, and of this one made past the services, invalidate it once the
+ * {@link OrderEventListener} is notified of them, so results may be stale for as long as the notification takes
+ * to arrive. While the listener has lost its connection they may be stale up to the TTL, all results are dropped once
+ * it's back.
+ */
+@Component
+public class OrderSearchCache {
+
+    private final boolean enabled;
+    private final Cache<Key, Result> results;
+    // Bumped by every invalidation, the generation of the results not filtered by phone
+    private final AtomicLong generation = new AtomicLong();
+    // The generation of the last invalidation of every phone, kept twice as long as results live, so that an entry
+    // outlives the results searched before its write. A phone without one has never been invalidated since.
+    private final Cache<String, Long> phoneGenerations;
+
+    public OrderSearchCache(SearchCacheProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.results = Caffeine.newBuilder()
+            .maximumSize(properties.getMaximumSize())
+            .expireAfterWrite(properties.getTtl())
+            .recordStats()
+            .build();
+        this.phoneGenerations = Caffeine.newBuilder()
+            .expireAfterWrite(properties.getTtl().multipliedBy(2))
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, results, "orderSearch");
+    }
+
+    public SearchPage<SearchOrderResponse> get(
+        SearchOrderRequest request,
+        CountMode countMode,
+        Supplier<SearchPage<SearchOrderResponse>> search
+    ) {
+        if (!enabled) {
+            return search.get();
+        }
+
+        var key = new Key(normalize(request), countMode);
+        var currentGeneration = generationOf(key);
+        // Stale results are dropped quietly first, so that they count as misses
+        var stale = results.policy().getIfPresentQuietly(key);
+        if (stale != null && stale.generation() != currentGeneration) {
+            results.asMap().remove(key, stale);
+        }
+        var cached = results.getIfPresent(key);
+        if (cached != null && cached.generation() == currentGeneration) {
+            return cached.page();
+        }
+
+        // A write racing with the search leaves the result stale right away, it may have been read before the write
+        var page = search.get();
+        results.put(key, new Result(currentGeneration, page));
+        return page;
+    }
+
+    /**
+     * Invalidates results possibly containing orders of the phones, now and once the current transaction completes,
+     * since searches running till the commit may still cache the previous state.
+     */
+    public void invalidate(Set<String> phones) {
+        if (!enabled) {
+            return;
+        }
+
+        evict(phones);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(phones);
+                }
+            });
+        }
+    }
+
+    /**
+     * Drops all results, for when writes may have been missed.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        results.invalidateAll();
+    }
+
+    private void evict(Set<String> phones) {
+        var next = generation.incrementAndGet();
+        phones.forEach(phone -> phoneGenerations.put(phone, next));
+    }
+
+    private long generationOf(Key key) {
+        var phone = key.request().phone();
+        if (phone == null) {
+            return generation.get();
+        }
+        var phoneGeneration = phoneGenerations.getIfPresent(phone);
+        return phoneGeneration != null ? phoneGeneration : 0;
+    }
+
+    private static SearchOrderRequest normalize(SearchOrderRequest request) {
+        return new SearchOrderRequest(
+            normalize(request.phone()),
+            normalize(request.firstName()),
+            normalize(request.lastName()),
+            request.createdFrom(),
+            request.createdTo(),
+            request.sort(),
+            request.pagination(),
+            // Not used by the offset search
+            CursorPagination.DEFAULT
+        );
+    }
+
+    private static String normalize(String filter) {
+        return StringUtils.hasText(filter) ? filter : null;
+    }
+
+    private record Key(
+        SearchOrderRequest request,
+        CountMode countMode
+    ) {
+    }
+
+    private record Result(
+        long generation,
+        SearchPage<SearchOrderResponse> page
+    ) {
+    }
+}
@@ -1,25 +1,40 @@
 package com.github.ggruzdov.sqrddemo.service;
 
 import com.github.ggruzdov.sqrddemo.config.AppProperties;
+import com.github.ggruzdov.sqrddemo.config.ReadYourWrites;
 import com.github.ggruzdov.sqrddemo.model.Order;
+import com.github.ggruzdov.sqrddemo.profiling.RequestPhase;
+import com.github.ggruzdov.sqrddemo.repository.OrderCountEstimator;
 import com.github.ggruzdov.sqrddemo.repository.OrderRepository;
+import com.github.ggruzdov.sqrddemo.repository.OrderRepositoryCustom.UpdatedOrder;
+import com.github.ggruzdov.sqrddemo.repository.OrderSpecifications;
+import com.github.ggruzdov.sqrddemo.request.CountMode;
+import com.github.ggruzdov.sqrddemo.request.InvalidRequestException;
+import com.github.ggruzdov.sqrddemo.request.OrderCursor;
+import com.github.ggruzdov.sqrddemo.request.OrderSort;
 import com.github.ggruzdov.sqrddemo.request.PlaceOrderRequest;
 import com.github.ggruzdov.sqrddemo.request.SearchOrderRequest;
 import com.github.ggruzdov.sqrddemo.request.UpdateOrderRequest;
+import com.github.ggruzdov.sqrddemo.response.CursorPage;
 import com.github.ggruzdov.sqrddemo.response.SearchOrderResponse;
+import com.github.ggruzdov.sqrddemo.response.SearchPage;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.persistence.OptimisticLockException;
 import lombok.RequiredArgsConstructor;
-import org.hibernate.StaleObjectStateException;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.jpa.domain.Specification;
-import org.springframework.data.web.PagedModel;
-import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 @Service
@@ -27,12 +42,54 @@ import java.time.Instant;
 public class OrderService {
 
     private final OrderRepository orderRepository;
+    private final OrderCountEstimator countEstimator;
     private final AppProperties appProperties;
+    private final OrderSearchCache searchCache;
+    private final ReadYourWrites readYourWrites;
+    private final MeterRegistry meterRegistry;
+    private final ObjectProvider<OrderGroupCommitWriter> groupCommitWriter;
 
     public Order placeOrder(PlaceOrderRequest request) {
+        var writer = groupCommitWriter.getIfAvailable();
+        if (writer != null) {
+            try (var phase = RequestPhase.start("insert")) {
+                return writer.place(toOrder(request));
+            }
+        }
+
+        // Sequence ids defer the insert till flush, flushing keeps the order written with its timestamps on return
+        Order order;
+        try (var phase = RequestPhase.start("insert")) {
+            order = orderRepository.saveAndFlush(toOrder(request));
+        }
+        searchCache.invalidate(Set.of(order.getCustomerPhone()));
+        readYourWrites.record(Set.of(order.getCustomerPhone()));
+        return order;
+    }
+
+    @Transactional
+    public List<Order> placeOrders(List<PlaceOrderRequest> requests) {
+        var orders = requests.stream()
+            .map(this::toOrder)
+            .toList();
+
+        // Ids come from the pooled sequence, so the inserts are sent in JDBC batches on flush
+        List<Order> saved;
+        try (var phase = RequestPhase.start("insert")) {
+            saved = orderRepository.saveAllAndFlush(orders);
+        }
+        var phones = saved.stream().map(Order::getCustomerPhone).collect(Collectors.toSet());
+        searchCache.invalidate(phones);
+        readYourWrites.record(phones);
+        return saved;
+    }
+
+    @Transactional
+    public Integer updateOrder(UpdateOrderRequest request) {
         var pilotes = Integer.parseInt(request.pilotes());
-        var order = Order.builder()
-            .version(1)
+        var changes = Order.builder()
+            .id(request.id())
+            .version(request.version())
             .customerFirstName(request.firstName())
             .customerLastName(request.lastName())
             .customerPhone(request.phone())
@@ -41,59 +98,113 @@ public class OrderService {
             .totalPrice(pilotes * appProperties.getPilotesPriceInCents())
             .build();
 
-        return orderRepository.save(order);
-    }
+        var modifiableSince = Instant.now().minus(appProperties.getOrderUpdateLifetime());
+        Optional<UpdatedOrder> updated;
+        try (var phase = RequestPhase.start("update")) {
+            updated = orderRepository.updateIfModifiable(changes, modifiableSince);
+        }
+        if (updated.isPresent()) {
+            // A changed phone moves the order between two cached phone filters
+            var phones = Stream.of(updated.get().previousPhone(), request.phone()).collect(Collectors.toSet());
+            searchCache.invalidate(phones);
+            readYourWrites.record(phones);
+            return updated.get().version();
+        }
 
-    @Transactional
-    public void updateOrder(UpdateOrderRequest request) {
-        var order = orderRepository.findById(request.id())
-            .orElseThrow(() -> new EntityNotFoundException("Order not found with id: " + request.id()));
+        // Nothing was updated, only then the order is read to tell the reason
+        var order = orderRepository.findById(request.id()).orElse(null);
+        if (order == null) {
+            countUpdateRejection("not_found");
+            throw new EntityNotFoundException("Order not found with id: " + request.id());
+        }
 
-        if (order.getCreatedAt().plus(appProperties.getOrderUpdateLifetime()).isBefore(Instant.now())) {
+        if (order.getCreatedAt().isBefore(modifiableSince)) {
+            countUpdateRejection("expired");
             throw new IllegalStateException(
                 "Order update lifetime expired. You can change the order only within " +
                     appProperties.getOrderUpdateLifetime().toMinutes() + " minutes after its creation."
             );
         }
 
+        countUpdateRejection("conflict");
+        throw new OptimisticLockException("Order was modified by another transaction. Please refresh and try again.");
+    }
+
+    private void countUpdateRejection(String reason) {
+        meterRegistry.counter("orders.update.rejected", "reason", reason).increment();
+    }
+
+    private Order toOrder(PlaceOrderRequest request) {
         var pilotes = Integer.parseInt(request.pilotes());
-        order.setCustomerFirstName(request.firstName());
-        order.setCustomerLastName(request.lastName());
-        order.setCustomerPhone(request.phone());
-        order.setDeliveryAddress(request.deliveryAddress());
-        order.setPilotes(pilotes);
-        order.setTotalPrice(pilotes * appProperties.getPilotesPriceInCents());
-
-        try {
-            orderRepository.saveAndFlush(order);
-        } catch (ObjectOptimisticLockingFailureException | StaleObjectStateException e) {
-            throw new OptimisticLockException("Order was modified by another transaction. Please refresh and try again.", e);
-        }
+        return Order.builder()
+            .version(1)
+            .customerFirstName(request.firstName())
+            .customerLastName(request.lastName())
+            .customerPhone(request.phone())
+            .deliveryAddress(request.deliveryAddress())
+            .pilotes(pilotes)
+            .totalPrice(pilotes * appProperties.getPilotesPriceInCents())
+            .build();
     }
 
-    public PagedModel<SearchOrderResponse> searchOrders(SearchOrderRequest request) {
-        Specification<Order> spec = Specification.where(null);
+    public SearchPage<SearchOrderResponse> searchOrders(SearchOrderRequest request, CountMode countMode) {
+        var page = searchCache.get(request, countMode, () -> {
+            var pageRequest = PageRequest.of(request.pagination().page() - 1, request.pagination().limit());
+
+            return switch (countMode) {
+                case EXACT -> SearchPage.of(orderRepository.searchOrders(request, pageRequest));
+                case NONE -> SearchPage.of(orderRepository.searchOrderSlice(request, pageRequest));
+                case ESTIMATE -> {
+                    var slice = orderRepository.searchOrderSlice(request, pageRequest);
+                    // Short of a full page the slice itself tells the total
+                    yield slice.hasNext()
+                        ? SearchPage.of(slice, countEstimator.estimate(request))
+                        : SearchPage.of(slice, 0);
+                }
+            };
+        });
+        recordSearchResults("offset", page.content().size());
+        return page;
+    }
+
+    public CursorPage<SearchOrderResponse> searchOrdersByCursor(SearchOrderRequest request) {
+        // The cursor is a position in the keyset ordering, other orders would need cursors of their own
+        if (!OrderSort.DEFAULT.equals(request.sort())) {
+            throw new InvalidRequestException("Orders are searched by cursor newest first only, sort isn't supported");
+        }
 
-        if (StringUtils.hasText(request.phone())) {
-            spec = spec.and((root, query, cb) ->
-                cb.equal(root.get("customerPhone"), request.phone()));
+        var spec = OrderSpecifications.matching(request);
+        if (StringUtils.hasText(request.cursor().after())) {
+            spec = spec.and(OrderSpecifications.after(OrderCursor.decode(request.cursor().after())));
         }
 
-        if (StringUtils.hasText(request.firstName())) {
-            spec = spec.and((root, query, cb) ->
-                cb.like(root.get("customerFirstName"), "%" + request.firstName() + "%"));
+        // One extra row tells whether there is a next page without running a count query
+        var limit = request.cursor().limit();
+        List<Order> orders;
+        try (var phase = RequestPhase.start("query")) {
+            orders = orderRepository.findBy(spec, query -> query
+                .sortBy(OrderCursor.SORT)
+                .limit(limit + 1)
+                .all());
         }
 
-        if (StringUtils.hasText(request.lastName())) {
-            spec = spec.and((root, query, cb) ->
-                cb.like(root.get("customerLastName"), "%" + request.lastName() + "%"));
+        String next = null;
+        if (orders.size() > limit) {
+            orders = orders.subList(0, limit);
+            var last = orders.getLast();
+            next = new OrderCursor(last.getCreatedAt(), last.getId()).encode();
         }
 
-        var pageRequest = PageRequest.of(request.pagination().page() - 1, request.pagination().limit());
-        var result = orderRepository
-            .findAll(spec, pageRequest)
-            .map(SearchOrderResponse::from);
+        recordSearchResults("cursor", orders.size());
+        return new CursorPage<>(orders.stream().map(SearchOrderResponse::from).toList(), next);
+    }
 
-        return new PagedModel<>(result);
+    private void recordSearchResults(String pagination, int size) {
+        DistributionSummary.builder("orders.search.results")
+            .description("Orders returned by a search")
+            .baseUnit("orders")
+            .tag("pagination", pagination)
+            .register(meterRegistry)
+            .record(size);
     }
 }
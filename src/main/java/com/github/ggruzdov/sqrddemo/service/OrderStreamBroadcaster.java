@@ -0,0 +1,220 @@
+package com.github.ggruzdov.sqrddemo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ggruzdov.sqrddemo.config.OrderStreamProperties;
+import com.github.ggruzdov.sqrddemo.response.SearchOrderResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans order events out to the subscribers of the live order feed. Every subscriber has a bounded buffer drained by
+ * a virtual thread of its own, so a slow client only holds up itself, and one whose buffer overflows is disconnected
+ * instead of holding events for it. The buffer holds the events published together as one entry, so that a batch of
+ * orders takes up one place however large it is. An event is serialized once whatever the number of subscribers,
+ * and handing it over never blocks the caller.
+ */
+@Slf4j
+@Service
+public class OrderStreamBroadcaster {
+
+    // Sent first, so that the response is committed and the client sees the stream open right away
+    private static final List<Set<DataWithMediaType>> CONNECTED = List.of(SseEmitter.event().comment("connected").build());
+    private static final List<Set<DataWithMediaType>> HEARTBEAT = List.of(SseEmitter.event().comment("heartbeat").build());
+    // Wakes the sender of a closed subscriber, compared by identity
+    private static final List<Set<DataWithMediaType>> CLOSE = new ArrayList<>();
+
+    private final ObjectMapper objectMapper;
+    private final int maxSubscribers;
+    private final int bufferSize;
+    private final Duration timeout;
+    private final Set<Subscriber> allOrdersSubscribers = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<String, Set<Subscriber>> phoneSubscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final Counter evictions;
+
+    public OrderStreamBroadcaster(ObjectMapper objectMapper, OrderStreamProperties properties, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.maxSubscribers = properties.getMaxSubscribers();
+        this.bufferSize = properties.getBufferSize();
+        this.timeout = properties.getTimeout();
+        this.evictions = Counter.builder("orders.stream.evictions")
+            .description("Subscribers disconnected for falling behind the order stream")
+            .register(meterRegistry);
+        Gauge.builder("orders.stream.subscribers", subscriberCount, AtomicInteger::get)
+            .description("Open streams of order events")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream of the events of the orders of the given phone, of all orders without one.
+     */
+    public SseEmitter subscribe(@Nullable String phone) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new TaskRejectedException("Too many open order streams, please try again later");
+        }
+
+        var emitter = new SseEmitter(timeout.toMillis());
+        var subscriber = new Subscriber(StringUtils.hasText(phone) ? phone : null, emitter);
+        // The emitter is done already, the sender only has to stop
+        emitter.onCompletion(() -> subscriber.close(false));
+        emitter.onError(e -> subscriber.close(false));
+        // A timed out emitter has to be completed right away, otherwise the timeout is handled as an error
+        emitter.onTimeout(() -> {
+            subscriber.close(false);
+            emitter.complete();
+        });
+
+        if (subscriber.phone == null) {
+            allOrdersSubscribers.add(subscriber);
+        } else {
+            phoneSubscribers.computeIfAbsent(subscriber.phone, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        }
+        subscriber.offer(CONNECTED);
+        Thread.ofVirtual().name("order-stream").start(subscriber::send);
+        return emitter;
+    }
+
+    /**
+     * Hands the events of the orders over to the subscribers of all orders and of the phones of the orders.
+     */
+    public void publish(String type, List<SearchOrderResponse> orders) {
+        var events = new ArrayList<Set<DataWithMediaType>>(orders.size());
+        var eventsByPhone = new HashMap<String, List<Set<DataWithMediaType>>>();
+        for (var order : orders) {
+            Set<DataWithMediaType> event;
+            try {
+                event = SseEmitter.event()
+                    .name(type)
+                    .data(objectMapper.writeValueAsString(order), MediaType.APPLICATION_JSON)
+                    .build();
+            } catch (JsonProcessingException e) {
+                log.error("Unable to serialize the {} event of order {}", type, order.id(), e);
+                continue;
+            }
+            events.add(event);
+            if (phoneSubscribers.containsKey(order.customerPhone())) {
+                eventsByPhone.computeIfAbsent(order.customerPhone(), phone -> new ArrayList<>()).add(event);
+            }
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+
+        allOrdersSubscribers.forEach(subscriber -> subscriber.offer(events));
+        eventsByPhone.forEach((phone, phoneEvents) -> {
+            var subscribers = phoneSubscribers.get(phone);
+            if (subscribers != null) {
+                subscribers.forEach(subscriber -> subscriber.offer(phoneEvents));
+            }
+        });
+    }
+
+    /**
+     * Closes all streams, for the clients to reconnect and catch up after events might have been missed.
+     */
+    public void disconnectAll() {
+        allOrdersSubscribers.forEach(subscriber -> subscriber.close(true));
+        phoneSubscribers.values().forEach(subscribers -> subscribers.forEach(subscriber -> subscriber.close(true)));
+    }
+
+    @Scheduled(
+        initialDelayString = "${app.order-stream.heartbeat-interval}",
+        fixedDelayString = "${app.order-stream.heartbeat-interval}"
+    )
+    public void sendHeartbeats() {
+        allOrdersSubscribers.forEach(subscriber -> subscriber.offer(HEARTBEAT));
+        phoneSubscribers.values().forEach(subscribers -> subscribers.forEach(subscriber -> subscriber.offer(HEARTBEAT)));
+    }
+
+    private final class Subscriber {
+
+        @Nullable
+        private final String phone;
+        private final SseEmitter emitter;
+        // Linked, so that the room is only taken while the subscriber falls behind
+        private final BlockingQueue<List<Set<DataWithMediaType>>> buffer = new LinkedBlockingQueue<>(bufferSize);
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean completeEmitter;
+
+        Subscriber(@Nullable String phone, SseEmitter emitter) {
+            this.phone = phone;
+            this.emitter = emitter;
+        }
+
+        void offer(List<Set<DataWithMediaType>> events) {
+            if (!buffer.offer(events) && !closed.get()) {
+                log.warn("Disconnecting a subscriber of the order stream, {} batches of events behind", bufferSize);
+                evictions.increment();
+                close(true);
+            }
+        }
+
+        void close(boolean completeEmitter) {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            this.completeEmitter = completeEmitter;
+            if (phone == null) {
+                allOrdersSubscribers.remove(this);
+            } else {
+                phoneSubscribers.computeIfPresent(phone, (key, subscribers) -> {
+                    subscribers.remove(this);
+                    return subscribers.isEmpty() ? null : subscribers;
+                });
+            }
+            subscriberCount.decrementAndGet();
+
+            // Pending events are dropped, completing the emitter is left to the sender, which may be stuck writing
+            buffer.clear();
+            buffer.offer(CLOSE);
+        }
+
+        void send() {
+            try {
+                while (true) {
+                    var events = buffer.take();
+                    if (closed.get()) {
+                        if (completeEmitter) {
+                            emitter.complete();
+                        }
+                        return;
+                    }
+                    for (var event : events) {
+                        emitter.send(event);
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client is gone, the emitter reports the error itself
+                log.debug("Order stream closed: {}", e.getMessage());
+                close(false);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.github.ggruzdov.sqrddemo.service;
+
+/**
+ * Thrown to the callers of {@link OrderGroupCommitWriter} whose batch failed with an error rather than an exception.
+ */
+public class OrderWriteException extends RuntimeException {
+
+    public OrderWriteException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.ggruzdov.sqrddemo.service;
+
+import com.github.ggruzdov.sqrddemo.config.AppProperties;
+import com.github.ggruzdov.sqrddemo.model.Order;
+import com.github.ggruzdov.sqrddemo.repository.ReactiveOrderRepository;
+import com.github.ggruzdov.sqrddemo.request.CountMode;
+import com.github.ggruzdov.sqrddemo.request.PlaceOrderRequest;
+import com.github.ggruzdov.sqrddemo.request.SearchOrderRequest;
+import com.github.ggruzdov.sqrddemo.response.SearchOrderResponse;
+import com.github.ggruzdov.sqrddemo.response.SearchPage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * Places and searches orders like {@link OrderService}, without blocking. Searches aren't cached, the cache of
+ * the servlet stack is filled and evicted by blocking calls.
+ */
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveOrderService {
+
+    private final ReactiveOrderRepository orderRepository;
+    private final AppProperties appProperties;
+
+    public Mono<Order> placeOrder(PlaceOrderRequest request) {
+        var pilotes = Integer.parseInt(request.pilotes());
+        return orderRepository.insert(Order.builder()
+            .version(1)
+            .customerFirstName(request.firstName())
+            .customerLastName(request.lastName())
+            .customerPhone(request.phone())
+            .deliveryAddress(request.deliveryAddress())
+            .pilotes(pilotes)
+            .totalPrice(pilotes * appProperties.getPilotesPriceInCents())
+            .build());
+    }
+
+    public Mono<SearchPage<SearchOrderResponse>> searchOrders(SearchOrderRequest request, CountMode countMode) {
+        var limit = request.pagination().limit();
+        var pageRequest = PageRequest.of(request.pagination().page() - 1, limit);
+
+        // A row more than the page tells whether there is a next one
+        return orderRepository.search(request, pageRequest.getOffset(), limit + 1).flatMap(rows -> {
+            var hasNext = rows.size() > limit;
+            var content = hasNext ? rows.subList(0, limit) : rows;
+            var slice = new SliceImpl<>(content, pageRequest, hasNext);
+
+            return switch (countMode) {
+                case NONE -> Mono.just(SearchPage.of(slice));
+                case ESTIMATE -> hasNext
+                    ? orderRepository.estimate(request).map(estimate -> SearchPage.of(slice, estimate))
+                    : Mono.just(SearchPage.of(slice, 0));
+                // The last page, if it isn't past the end, tells the total as well
+                case EXACT -> !hasNext && (!content.isEmpty() || pageRequest.getOffset() == 0)
+                    ? Mono.just(SearchPage.of(new PageImpl<>(content, pageRequest, pageRequest.getOffset() + content.size())))
+                    : orderRepository.count(request).map(total -> SearchPage.of(new PageImpl<>(content, pageRequest, total)));
+            };
+        });
+    }
+}
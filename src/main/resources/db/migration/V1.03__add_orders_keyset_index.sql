@@ -0,0 +1,2 @@
+-- Supports keyset pagination ordered by (created_at, id) descending
+CREATE INDEX idx_orders_created_at_id ON orders (created_at DESC, id DESC);
@@ -0,0 +1,5 @@
+-- Trigram indexes make substring search on customer names ('%ke%') index-backed
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX idx_orders_customer_first_name_trgm ON orders USING gin (customer_first_name gin_trgm_ops);
+CREATE INDEX idx_orders_customer_last_name_trgm ON orders USING gin (customer_last_name gin_trgm_ops);
@@ -0,0 +1,11 @@
+-- Identity columns disable JDBC insert batching in Hibernate, a pooled sequence doesn't.
+-- The increment must match the allocation size of the Order id generator.
+ALTER TABLE orders ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE orders_seq AS INTEGER INCREMENT BY 50 OWNED BY orders.id;
+-- Hibernate's pooled optimizer hands out the ids (value - 49 .. value) for each fetched value
+SELECT setval('orders_seq', (SELECT COALESCE(MAX(id), 0) FROM orders) + 50, false);
+
+-- There is no column default on purpose, an insert taking nextval for a single row would use up a whole block
+-- and run the INTEGER ids out 50 times sooner. Other writers reserve a block with nextval or setval and hand out
+-- its ids themselves.
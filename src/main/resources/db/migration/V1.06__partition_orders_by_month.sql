@@ -0,0 +1,64 @@
+-- Range-partitions orders by month of created_at(UTC), so that old months can be detached and archived as a whole,
+-- searches by a date range only read the partitions of the range, and indexes and vacuum deal with one month at once.
+-- Upcoming partitions are created ahead and expired ones archived by OrderPartitionMaintenance.
+ALTER TABLE orders RENAME TO orders_unpartitioned;
+-- Dropping the old table would drop its sequence too
+ALTER SEQUENCE orders_seq OWNED BY NONE;
+
+-- The primary key of a partitioned table has to include the partition key. Ids stay unique as they all come from
+-- orders_seq, and lookups by id are still served by the primary key index of every partition.
+CREATE TABLE orders
+(
+    id                  INTEGER      NOT NULL,
+    version             INTEGER      NOT NULL,
+    customer_first_name VARCHAR(255) NOT NULL,
+    customer_last_name  VARCHAR(255) NOT NULL,
+    customer_phone      VARCHAR(255) NOT NULL,
+    delivery_address    VARCHAR(255) NOT NULL,
+    pilotes             INTEGER      NOT NULL,
+    total_price         INTEGER      NOT NULL,
+    created_at          timestamptz  NOT NULL,
+    updated_at          timestamptz  NOT NULL,
+    CONSTRAINT pk_orders_partitioned PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+ALTER SEQUENCE orders_seq OWNED BY orders.id;
+
+CREATE SCHEMA IF NOT EXISTS orders_archive;
+
+-- Partitions from the month of the oldest order up to three months ahead, named orders_pYYYYMM
+DO
+$$
+    DECLARE
+        month_start timestamp := date_trunc('month', COALESCE(
+            (SELECT min(created_at) FROM orders_unpartitioned), now()
+        ) AT TIME ZONE 'UTC');
+        last_month  timestamp := date_trunc('month', now() AT TIME ZONE 'UTC') + INTERVAL '3 months';
+    BEGIN
+        WHILE month_start <= last_month
+            LOOP
+                EXECUTE format(
+                    'CREATE TABLE %I PARTITION OF orders FOR VALUES FROM (%L) TO (%L)',
+                    'orders_p' || to_char(month_start, 'YYYYMM'),
+                    month_start || '+00',
+                    (month_start + INTERVAL '1 month') || '+00'
+                );
+                month_start := month_start + INTERVAL '1 month';
+            END LOOP;
+    END
+$$;
+
+INSERT INTO orders
+SELECT id, version, customer_first_name, customer_last_name, customer_phone, delivery_address,
+       pilotes, total_price, created_at, updated_at
+FROM orders_unpartitioned;
+
+DROP TABLE orders_unpartitioned;
+ALTER TABLE orders RENAME CONSTRAINT pk_orders_partitioned TO pk_orders;
+
+-- Indexes of the partitioned table are created on every partition, present and future
+CREATE INDEX idx_orders_created_at_id ON orders (created_at DESC, id DESC);
+CREATE INDEX idx_orders_customer_first_name_trgm ON orders USING gin (customer_first_name gin_trgm_ops);
+CREATE INDEX idx_orders_customer_last_name_trgm ON orders USING gin (customer_last_name gin_trgm_ops);
+
+ANALYZE orders;
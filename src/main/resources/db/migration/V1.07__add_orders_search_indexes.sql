@@ -0,0 +1,10 @@
+-- Serves the phone filter, alone or with a date range, and returns the orders of a customer newest first
+-- in the order of the search, without sorting them
+CREATE INDEX idx_orders_customer_phone_created_at ON orders (customer_phone, created_at DESC, id DESC);
+
+-- Orders are inserted in creation order, so the block ranges barely overlap. Serves date ranges too wide
+-- for the btree to pay off, at a fraction of its size, and is combined with the name indexes in bitmap scans
+CREATE INDEX idx_orders_created_at_brin ON orders USING brin (created_at);
+
+-- Supports sorting by price in either direction, ties broken by id
+CREATE INDEX idx_orders_total_price_id ON orders (total_price, id);
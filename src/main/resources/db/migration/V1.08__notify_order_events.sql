@@ -0,0 +1,72 @@
+-- Announces the placed or updated orders on the order_events channel, for the live order feed and the search caches of every node. Notifications are
+-- delivered to the listeners at commit, in commit order, and the payload carries the orders as the search returns
+-- them, so that listeners need no query per event. The triggers fire once per statement, a batch of orders is
+-- announced with as few notifications as fit under the 8000 byte payload limit instead of one per order.
+-- Updates carry the phone before the update too, so that listeners caching searches by phone drop the ones of both.
+-- The triggers are on the partitioned table, so they cover the partitions created later too
+CREATE FUNCTION notify_order_events() RETURNS trigger AS
+$$
+DECLARE
+    event_type    text := CASE TG_OP WHEN 'INSERT' THEN 'created' ELSE 'updated' END;
+    changed       record;
+    changed_rows  refcursor;
+    order_event   text;
+    orders        text := '';
+BEGIN
+    -- previous_orders only exists for updates, the query is planned when its branch runs
+    IF TG_OP = 'INSERT' THEN
+        OPEN changed_rows FOR
+            SELECT o.*, NULL::varchar AS previous_phone
+            FROM changed_orders o
+            ORDER BY o.id;
+    ELSE
+        OPEN changed_rows FOR
+            SELECT o.*, p.customer_phone AS previous_phone
+            FROM changed_orders o
+            JOIN previous_orders p ON p.id = o.id
+            ORDER BY o.id;
+    END IF;
+
+    LOOP
+        FETCH changed_rows INTO changed;
+        EXIT WHEN NOT FOUND;
+        order_event := json_build_object(
+            'id', changed.id,
+            'customerFirstName', changed.customer_first_name,
+            'customerLastName', changed.customer_last_name,
+            'customerPhone', changed.customer_phone,
+            'previousPhone', changed.previous_phone,
+            'deliveryAddress', changed.delivery_address,
+            'pilotes', changed.pilotes,
+            'totalPrice', changed.total_price,
+            'createdAt', to_char(changed.created_at AT TIME ZONE 'UTC', 'YYYY-MM-DD"T"HH24:MI:SS.US"Z"'),
+            'version', changed.version
+        )::text;
+        -- A single order is far below the limit, its columns are 255 characters at most
+        IF orders <> '' AND octet_length(orders) + octet_length(order_event) > 7900 THEN
+            PERFORM pg_notify('order_events', format('{"type":"%s","orders":[%s]}', event_type, orders));
+            orders := '';
+        END IF;
+        orders := CASE WHEN orders = '' THEN order_event ELSE orders || ',' || order_event END;
+    END LOOP;
+    CLOSE changed_rows;
+
+    IF orders <> '' THEN
+        PERFORM pg_notify('order_events', format('{"type":"%s","orders":[%s]}', event_type, orders));
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Transition tables are only allowed on triggers of a single event
+CREATE TRIGGER trg_orders_notify_created
+    AFTER INSERT ON orders
+    REFERENCING NEW TABLE AS changed_orders
+    FOR EACH STATEMENT
+EXECUTE FUNCTION notify_order_events();
+
+CREATE TRIGGER trg_orders_notify_updated
+    AFTER UPDATE ON orders
+    REFERENCING OLD TABLE AS previous_orders NEW TABLE AS changed_orders
+    FOR EACH STATEMENT
+EXECUTE FUNCTION notify_order_events();
@@ -1,5 +1,6 @@
 package com.github.ggruzdov.sqrddemo;
 
+import com.github.ggruzdov.sqrddemo.service.CustomerService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -13,6 +14,7 @@ import org.springframework.test.web.servlet.MvcResult;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -26,6 +28,9 @@ class AuthControllerTests {
     @Autowired
     private SecurityContextRepository securityContextRepository;
 
+    @Autowired
+    private CustomerService customerService;
+
     @Test
     void loginFailsWithInvalidCredentials() throws Exception {
         mockMvc.perform(post("/auth/login")
@@ -52,6 +57,25 @@ class AuthControllerTests {
             .andExpect(status().isOk());
     }
 
+    @Test
+    void repeatedLoginIsServedFromCache() throws Exception {
+        var hitsBefore = customerService.userCacheStats().hitCount();
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/auth/login")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("""
+                        {
+                            "phone": "5551234567",
+                            "password": "password123"
+                        }
+                        """))
+                .andExpect(status().isOk());
+        }
+
+        assertTrue(customerService.userCacheStats().hitCount() > hitsBefore, "Second login should hit the user cache");
+    }
+
     @Test
     void loginCreatesSessionAndLogoutClearsSession() throws Exception {
         MockHttpSession session = new MockHttpSession();
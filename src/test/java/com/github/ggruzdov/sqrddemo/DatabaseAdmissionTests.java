@@ -0,0 +1,78 @@
+package com.github.ggruzdov.sqrddemo;
+
+import com.github.ggruzdov.sqrddemo.config.AdmissionControlledDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+    "app.db-admission.enabled=true",
+    "app.db-admission.max-concurrency=2",
+    "app.db-admission.max-queue=0",
+    "app.search-cache.enabled=false"
+})
+@AutoConfigureMockMvc
+// No other test shares this context, closing it frees its connections for the rest
+@DirtiesContext
+class DatabaseAdmissionTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void requestsAreRejectedWhileTheDatabaseIsBusy() throws Exception {
+        var session = login();
+
+        // Flyway needs two connections at startup, hence not a single one
+        try (var first = dataSource.getConnection(); var second = dataSource.getConnection()) {
+            mockMvc.perform(get("/orders/search")
+                    .session(session))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.error").value("Service unavailable"));
+        }
+
+        mockMvc.perform(get("/orders/search")
+                .session(session))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    void limiterWrapsTheStatementProxy() {
+        var limiter = assertInstanceOf(AdmissionControlledDataSource.class, dataSource);
+        assertInstanceOf(ProxyDataSource.class, limiter.getTargetDataSource());
+    }
+
+    private MockHttpSession login() throws Exception {
+        return (MockHttpSession) mockMvc.perform(post("/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "phone": "5552223333",
+                        "password": "mike1234"
+                    }
+                    """))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getRequest()
+            .getSession();
+    }
+}
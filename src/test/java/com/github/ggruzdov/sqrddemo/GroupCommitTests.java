@@ -0,0 +1,213 @@
+package com.github.ggruzdov.sqrddemo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ggruzdov.sqrddemo.config.GlobalExceptionHandler;
+import com.github.ggruzdov.sqrddemo.config.GroupCommitProperties;
+import com.github.ggruzdov.sqrddemo.config.ReadYourWrites;
+import com.github.ggruzdov.sqrddemo.model.Order;
+import com.github.ggruzdov.sqrddemo.repository.OrderRepository;
+import com.github.ggruzdov.sqrddemo.response.PlaceOrderResponse;
+import com.github.ggruzdov.sqrddemo.service.OrderGroupCommitWriter;
+import com.github.ggruzdov.sqrddemo.service.OrderSearchCache;
+import com.github.ggruzdov.sqrddemo.service.OrderWriteException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+    "app.group-commit.enabled=true",
+    "app.group-commit.max-batch-size=10",
+    "app.group-commit.linger=200ms"
+})
+@AutoConfigureMockMvc
+// No other test shares this context, closing it frees its connections for the rest
+@DirtiesContext
+class GroupCommitTests {
+
+    private static final int ORDER_COUNT = 20;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderSearchCache searchCache;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void concurrentOrdersAreCommittedInBatches() throws Exception {
+        var batchSizes = meterRegistry.get("orders.ingestion.batch.size").summary();
+        var batchesBefore = batchSizes.count();
+
+        var placements = new ArrayList<Callable<PlaceOrderResponse>>();
+        for (int i = 0; i < ORDER_COUNT; i++) {
+            placements.add(() -> {
+                var result = mockMvc.perform(post("/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                            {
+                                "firstName": "Group",
+                                "lastName": "Commit",
+                                "phone": "5552223333",
+                                "deliveryAddress": "5th Avenue, 13",
+                                "pilotes": 10
+                            }
+                            """))
+                    .andExpect(status().isOk())
+                    .andReturn();
+                return objectMapper.readValue(result.getResponse().getContentAsString(), PlaceOrderResponse.class);
+            });
+        }
+
+        var ids = new HashSet<Integer>();
+        try (var executor = Executors.newFixedThreadPool(ORDER_COUNT)) {
+            for (var placed : executor.invokeAll(placements)) {
+                ids.add(placed.get().id());
+            }
+        }
+
+        assertEquals(ORDER_COUNT, ids.size(), "Every order should get its own id");
+        assertTrue(batchSizes.count() - batchesBefore < ORDER_COUNT, "Orders should share commits");
+        assertTrue(batchSizes.max() > 1, "Orders should share commits");
+    }
+
+    @Test
+    void writerFailsTheBatchOfAnErrorAndGoesOn() throws Exception {
+        var failures = new AtomicInteger(1);
+        var writer = writer(orders -> {
+            if (failures.getAndDecrement() > 0) {
+                throw new StackOverflowError();
+            }
+            return orderRepository.saveAllAndFlush(orders);
+        });
+        try {
+            var failure = assertThrows(OrderWriteException.class, () -> writer.place(order()));
+            assertInstanceOf(StackOverflowError.class, failure.getCause());
+            assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, new GlobalExceptionHandler().handleGenericException(failure).getStatusCode());
+
+            assertNotNull(writer.place(order()).getId());
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    void placingGivesUpAfterTheCommitTimeout() throws Exception {
+        var commit = new CountDownLatch(1);
+        var writer = writer(orders -> {
+            try {
+                commit.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return orderRepository.saveAllAndFlush(orders);
+        });
+        try {
+            var timeout = assertThrows(QueryTimeoutException.class, () -> writer.place(order()));
+            assertEquals(HttpStatus.GATEWAY_TIMEOUT, new GlobalExceptionHandler().handleQueryTimeoutException(timeout).getStatusCode());
+        } finally {
+            commit.countDown();
+            writer.close();
+        }
+
+        assertThrows(TaskRejectedException.class, () -> writer.place(order()));
+    }
+
+    @Test
+    void interruptedPlacingIsRejected() throws Exception {
+        var writer = writer(orderRepository::saveAllAndFlush);
+        try {
+            Thread.currentThread().interrupt();
+            var rejected = assertThrows(TaskRejectedException.class, () -> writer.place(order()));
+            assertTrue(Thread.interrupted(), "The interrupt should be kept");
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, new GlobalExceptionHandler().handleTaskRejectedException(rejected).getStatusCode());
+        } finally {
+            Thread.interrupted();
+            writer.close();
+        }
+    }
+
+    // A writer of its own, saving batches with the given function instead of the repository
+    private OrderGroupCommitWriter writer(Function<List<Order>, List<Order>> saveAllAndFlush) {
+        var repository = (OrderRepository) Proxy.newProxyInstance(
+            OrderRepository.class.getClassLoader(),
+            new Class<?>[]{OrderRepository.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("saveAllAndFlush")) {
+                    @SuppressWarnings("unchecked")
+                    var orders = (List<Order>) args[0];
+                    return saveAllAndFlush.apply(orders);
+                }
+                return method.invoke(orderRepository, args);
+            }
+        );
+        var properties = new GroupCommitProperties();
+        properties.setQueueCapacity(10);
+        properties.setMaxBatchSize(10);
+        properties.setLinger(Duration.ZERO);
+        properties.setCommitTimeout(Duration.ofMillis(500));
+
+        var writer = new OrderGroupCommitWriter(
+            repository, searchCache, readYourWrites, transactionManager, properties, new SimpleMeterRegistry()
+        );
+        return (OrderGroupCommitWriter) applicationContext.getAutowireCapableBeanFactory().initializeBean(writer, "testOrderWriter");
+    }
+
+    private static Order order() {
+        return Order.builder()
+            .version(1)
+            .customerFirstName("Group")
+            .customerLastName("Writer")
+            .customerPhone("5552223333")
+            .deliveryAddress("5th Avenue, 13")
+            .pilotes(5)
+            .totalPrice(665)
+            .build();
+    }
+}
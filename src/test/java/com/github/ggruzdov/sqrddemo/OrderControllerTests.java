@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.ggruzdov.sqrddemo.config.AppProperties;
 import com.github.ggruzdov.sqrddemo.repository.OrderRepository;
 import com.github.ggruzdov.sqrddemo.response.PlaceOrderResponse;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.awaitility.Awaitility;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,22 +12,36 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest(properties = {
-    "app.order-update-lifetime=2s"
+    "app.order-update-lifetime=2s",
+    "app.operator.password=" + OrderControllerTests.OPERATOR_PASSWORD
 })
 @AutoConfigureMockMvc
 @Transactional
+// No other test shares this context, closing it frees its connections for the rest
+@DirtiesContext
 class OrderControllerTests {
 
+    static final String OPERATOR = "operator";
+    static final String OPERATOR_PASSWORD = "operator1234";
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -39,6 +54,9 @@ class OrderControllerTests {
     @Autowired
     private AppProperties appProperties;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Test
     void placeOrderSuccessful() throws Exception {
         var placeOrderResult = mockMvc.perform(post("/orders")
@@ -80,6 +98,70 @@ class OrderControllerTests {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void placeOrdersBatchSuccessful() throws Exception {
+        var placeOrdersResult = mockMvc.perform(post("/orders/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    [
+                        {
+                            "firstName": "Mike",
+                            "lastName": "Johnson",
+                            "phone": "5552223333",
+                            "deliveryAddress": "5th Avenue, 13",
+                            "pilotes": 5
+                        },
+                        {
+                            "firstName": "Jane",
+                            "lastName": "Smith",
+                            "phone": "5559876543",
+                            "deliveryAddress": "Baker Street, 221b",
+                            "pilotes": 15
+                        }
+                    ]
+                    """))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        var response = objectMapper.readValue(placeOrdersResult.getResponse().getContentAsString(), PlaceOrderResponse[].class);
+        assertEquals(2, response.length);
+
+        var first = orderRepository.findById(response[0].id()).orElseThrow();
+        assertEquals("Mike", first.getCustomerFirstName());
+        assertEquals(5 * appProperties.getPilotesPriceInCents(), first.getTotalPrice());
+
+        var second = orderRepository.findById(response[1].id()).orElseThrow();
+        assertEquals("Jane", second.getCustomerFirstName());
+        assertEquals(15 * appProperties.getPilotesPriceInCents(), second.getTotalPrice());
+    }
+
+    @Test
+    void placeOrdersBatchWithInvalidOrder() throws Exception {
+        mockMvc.perform(post("/orders/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    [
+                        {
+                            "firstName": "Mike",
+                            "lastName": "Johnson",
+                            "phone": "5552223333",
+                            "deliveryAddress": "5th Avenue, 13",
+                            "pilotes": 5
+                        },
+                        {
+                            "firstName": "John",
+                            "pilotes": 0
+                        }
+                    ]
+                    """))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/orders/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void updateOrderSuccessful() throws Exception {
         var placeOrderResult = mockMvc.perform(post("/orders")
@@ -108,10 +190,13 @@ class OrderControllerTests {
                         "lastName": "Johnson",
                         "phone": "5552223333",
                         "deliveryAddress": "5th Avenue, 13",
-                        "pilotes": 10
+                        "pilotes": 10,
+                        "version": 1
                     }
                     """, response.id())))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(response.id()))
+                .andExpect(jsonPath("$.version").value(2));
 
         var result = orderRepository.findById(response.id())
             .orElseThrow(() -> new IllegalStateException("Order not found with id: " + response.id()));
@@ -147,6 +232,41 @@ class OrderControllerTests {
             .until(() -> true);
 
         // Update the order
+        mockMvc.perform(put("/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(String.format("""
+                    {
+                        "id": %d,
+                        "firstName": "Mike",
+                        "lastName": "Johnson",
+                        "phone": "5552223333",
+                        "deliveryAddress": "5th Avenue, 13",
+                        "pilotes": 10,
+                        "version": 1
+                    }
+                    """, response.id())))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void updateOrderWithoutVersion() throws Exception {
+        var placeOrderResult = mockMvc.perform(post("/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "firstName": "Mike",
+                        "lastName": "Johnson",
+                        "phone": "5552223333",
+                        "deliveryAddress": "5th Avenue, 13",
+                        "pilotes": 15
+                    }
+                    """))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        var response = objectMapper.readValue(placeOrderResult.getResponse().getContentAsString(), PlaceOrderResponse.class);
+
+        // Without the version the update could silently overwrite a concurrent one
         mockMvc.perform(put("/orders")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(String.format("""
@@ -160,6 +280,51 @@ class OrderControllerTests {
                     }
                     """, response.id())))
             .andExpect(status().isBadRequest());
+
+        var result = orderRepository.findById(response.id()).orElseThrow();
+        assertEquals(1, result.getVersion());
+        assertEquals(15, result.getPilotes());
+    }
+
+    @Test
+    void updateOrderWithStaleVersion() throws Exception {
+        var placeOrderResult = mockMvc.perform(post("/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "firstName": "Mike",
+                        "lastName": "Johnson",
+                        "phone": "5552223333",
+                        "deliveryAddress": "5th Avenue, 13",
+                        "pilotes": 15
+                    }
+                    """))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        var response = objectMapper.readValue(placeOrderResult.getResponse().getContentAsString(), PlaceOrderResponse.class);
+
+        // The first update moves the order to version 2, so the second one is stale
+        for (var expectedStatus : new int[]{200, 400}) {
+            mockMvc.perform(put("/orders")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(String.format("""
+                        {
+                            "id": %d,
+                            "firstName": "Mike",
+                            "lastName": "Johnson",
+                            "phone": "5552223333",
+                            "deliveryAddress": "5th Avenue, 13",
+                            "pilotes": 10,
+                            "version": 1
+                        }
+                        """, response.id())))
+                .andExpect(status().is(expectedStatus));
+        }
+
+        var result = orderRepository.findById(response.id()).orElseThrow();
+        assertEquals(2, result.getVersion());
+        assertEquals(10, result.getPilotes());
     }
 
     @Test
@@ -173,7 +338,8 @@ class OrderControllerTests {
                         "lastName": "Johnson",
                         "phone": "5552223333",
                         "deliveryAddress": "5th Avenue, 13",
-                        "pilotes": 10
+                        "pilotes": 10,
+                        "version": 1
                     }
                     """))
                 .andExpect(status().isNotFound());
@@ -228,4 +394,514 @@ class OrderControllerTests {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.content[0].customerFirstName", is("Mike")));
     }
-}
\ No newline at end of file
+
+    @Test
+    void placeThenSearchOrdersByCursor() throws Exception {
+        MockHttpSession session = new MockHttpSession();
+
+        mockMvc.perform(post("/auth/login")
+                .session(session)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "phone": "5552223333",
+                        "password": "mike1234"
+                    }
+                    """))
+                .andExpect(status().isOk());
+
+        for (var pilotes : new int[]{5, 10, 15}) {
+            mockMvc.perform(post("/orders")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(String.format("""
+                        {
+                            "firstName": "Mike",
+                            "lastName": "Keyset",
+                            "phone": "5552223333",
+                            "deliveryAddress": "5th Avenue, 13",
+                            "pilotes": %d
+                        }
+                        """, pilotes)))
+                    .andExpect(status().isOk());
+        }
+
+        var firstPage = mockMvc.perform(get("/orders/search/cursor")
+                .session(session)
+                .param("lastName", "Keyset")
+                .param("cursor.limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()", is(2)))
+                .andExpect(jsonPath("$.content[0].pilotes", is(15)))
+                .andExpect(jsonPath("$.content[1].pilotes", is(10)))
+                .andReturn();
+
+        var next = objectMapper.readTree(firstPage.getResponse().getContentAsString()).get("next").asText();
+
+        mockMvc.perform(get("/orders/search/cursor")
+                .session(session)
+                .param("lastName", "Keyset")
+                .param("cursor.limit", "2")
+                .param("cursor.after", next))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()", is(1)))
+                .andExpect(jsonPath("$.content[0].pilotes", is(5)))
+                .andExpect(jsonPath("$.next").doesNotExist());
+    }
+
+    @Test
+    void searchOrdersByInvalidCursor() throws Exception {
+        MockHttpSession session = new MockHttpSession();
+
+        mockMvc.perform(post("/auth/login")
+                .session(session)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "phone": "5552223333",
+                        "password": "mike1234"
+                    }
+                    """))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/orders/search/cursor")
+                .session(session)
+                .param("cursor.after", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/orders/search/cursor")
+                .session(session)
+                .param("sort", "totalPrice,desc"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/orders/search/cursor")
+                .session(session)
+                .param("sort", "createdAt,desc"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void searchReflectsPlacedOrders() throws Exception {
+        MockHttpSession session = new MockHttpSession();
+
+        mockMvc.perform(post("/auth/login")
+                .session(session)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "phone": "5559876543",
+                        "password": "securePass"
+                    }
+                    """))
+                .andExpect(status().isOk());
+
+        // Caches the result filtered by the phone
+        var before = mockMvc.perform(get("/orders/search")
+                .session(session)
+                .param("phone", "5559876543"))
+                .andExpect(status().isOk())
+                .andReturn();
+        var totalBefore = objectMapper.readTree(before.getResponse().getContentAsString())
+            .at("/page/totalElements").asInt();
+
+        mockMvc.perform(post("/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "firstName": "Jane",
+                        "lastName": "Smith",
+                        "phone": "5559876543",
+                        "deliveryAddress": "Baker Street, 221b",
+                        "pilotes": 10
+                    }
+                    """))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/orders/search")
+                .session(session)
+                .param("phone", "5559876543"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.page.totalElements", is(totalBefore + 1)));
+
+        assertTrue(meterRegistry.get("orders.search.results").tag("pagination", "offset").summary().count() >= 2);
+    }
+
+    @Test
+    void searchByEveryFilterCombination() throws Exception {
+        MockHttpSession session = new MockHttpSession();
+
+        mockMvc.perform(post("/auth/login")
+                .session(session)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "phone": "5552223333",
+                        "password": "mike1234"
+                    }
+                    """))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "firstName": "Mike",
+                        "lastName": "Combi_nation",
+                        "phone": "5552223333",
+                        "deliveryAddress": "5th Avenue, 13",
+                        "pilotes": 5
+                    }
+                    """))
+                .andExpect(status().isOk());
+
+        for (int filters = 0; filters < 8; filters++) {
+            var search = get("/orders/search")
+                .session(session)
+                .param("pagination.page", "1")
+                .param("pagination.limit", "1000");
+            if ((filters & 1) != 0) {
+                search.param("phone", "5552223333");
+            }
+            if ((filters & 2) != 0) {
+                search.param("firstName", "ik");
+            }
+            if ((filters & 4) != 0) {
+                search.param("lastName", "bi_na");
+            }
+            mockMvc.perform(search)
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content[*].customerLastName", hasItem("Combi_nation")));
+        }
+
+        // Wildcards of the filter are matched literally
+        mockMvc.perform(get("/orders/search")
+                .session(session)
+                .param("lastName", "Combi%"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.page.totalElements", is(0)));
+    }
+
+    @Test
+    void searchWithoutExactCount() throws Exception {
+        MockHttpSession session = new MockHttpSession();
+
+        mockMvc.perform(post("/auth/login")
+                .session(session)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "phone": "5552223333",
+                        "password": "mike1234"
+                    }
+                    """))
+                .andExpect(status().isOk());
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(post("/orders")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("""
+                        {
+                            "firstName": "Mike",
+                            "lastName": "Uncounted",
+                            "phone": "5552223333",
+                            "deliveryAddress": "5th Avenue, 13",
+                            "pilotes": 5
+                        }
+                        """))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get("/orders/search")
+                .session(session)
+                .param("lastName", "Uncounted")
+                .param("pagination.page", "1")
+                .param("pagination.limit", "2")
+                .param("count", "none"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()", is(2)))
+                .andExpect(jsonPath("$.page.hasNext", is(true)))
+                .andExpect(jsonPath("$.page.count", is("NONE")))
+                .andExpect(jsonPath("$.page.totalElements").doesNotExist());
+
+        mockMvc.perform(get("/orders/search")
+                .session(session)
+                .param("lastName", "Uncounted")
+                .param("pagination.page", "2")
+                .param("pagination.limit", "2")
+                .param("count", "none"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()", is(1)))
+                .andExpect(jsonPath("$.page.hasNext", is(false)));
+
+        // The planner estimate is never below the orders the page proves to exist
+        mockMvc.perform(get("/orders/search")
+                .session(session)
+                .param("lastName", "Uncounted")
+                .param("pagination.page", "1")
+                .param("pagination.limit", "2")
+                .param("count", "estimate"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()", is(2)))
+                .andExpect(jsonPath("$.page.hasNext", is(true)))
+                .andExpect(jsonPath("$.page.count", is("ESTIMATE")))
+                .andExpect(jsonPath("$.page.totalElements", greaterThanOrEqualTo(3)));
+
+        mockMvc.perform(get("/orders/search")
+                .session(session)
+                .param("count", "approximately"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void searchSortedByPriceAndCreationTime() throws Exception {
+        MockHttpSession session = new MockHttpSession();
+
+        mockMvc.perform(post("/auth/login")
+                .session(session)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "phone": "5552223333",
+                        "password": "mike1234"
+                    }
+                    """))
+                .andExpect(status().isOk());
+
+        for (var pilotes : List.of(10, 5, 15)) {
+            mockMvc.perform(post("/orders")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("""
+                        {
+                            "firstName": "Mike",
+                            "lastName": "Sorted",
+                            "phone": "5552223333",
+                            "deliveryAddress": "5th Avenue, 13",
+                            "pilotes": %d
+                        }
+                        """.formatted(pilotes)))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get("/orders/search")
+                .session(session)
+                .param("lastName", "Sorted"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].pilotes", is(List.of(15, 5, 10))));
+
+        mockMvc.perform(get("/orders/search")
+                .session(session)
+                .param("lastName", "Sorted")
+                .param("sort", "createdAt"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].pilotes", is(List.of(10, 5, 15))));
+
+        mockMvc.perform(get("/orders/search")
+                .session(session)
+                .param("lastName", "Sorted")
+                .param("sort", "totalPrice,desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].pilotes", is(List.of(15, 10, 5))));
+
+        mockMvc.perform(get("/orders/search")
+                .session(session)
+                .param("lastName", "Sorted")
+                .param("sort", "totalPrice,asc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].pilotes", is(List.of(5, 10, 15))));
+
+        mockMvc.perform(get("/orders/search")
+                .session(session)
+                .param("sort", "deliveryAddress"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/orders/search")
+                .session(session)
+                .param("sort", "totalPrice,sideways"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void exportOrdersAsNdjsonAndCsv() throws Exception {
+        MockHttpSession session = new MockHttpSession();
+
+        mockMvc.perform(post("/auth/login")
+                .session(session)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "phone": "5552223333",
+                        "password": "mike1234"
+                    }
+                    """))
+                .andExpect(status().isOk());
+
+        for (var pilotes : List.of(5, 10)) {
+            mockMvc.perform(post("/orders")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("""
+                        {
+                            "firstName": "Mike",
+                            "lastName": "Export",
+                            "phone": "5552223333",
+                            "deliveryAddress": "5th Avenue, 13",
+                            "pilotes": %d
+                        }
+                        """.formatted(pilotes)))
+                    .andExpect(status().isOk());
+        }
+
+        var ndjson = mockMvc.perform(get("/orders/export")
+                .session(session)
+                .param("lastName", "Export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        var lines = ndjson.lines().toList();
+        assertEquals(2, lines.size());
+        assertTrue(ndjson.endsWith("\n"));
+        assertEquals(5, objectMapper.readTree(lines.get(0)).get("pilotes").asInt());
+        assertEquals(10, objectMapper.readTree(lines.get(1)).get("pilotes").asInt());
+
+        var csv = mockMvc.perform(get("/orders/export")
+                .session(session)
+                .param("lastName", "Export")
+                .param("format", "csv"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"orders.csv\""))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        var rows = csv.lines().toList();
+        assertEquals(3, rows.size());
+        assertTrue(rows.get(0).startsWith("id,customerFirstName"));
+        assertTrue(rows.get(1).contains(",Mike,Export,5552223333,\"5th Avenue, 13\",5,"));
+    }
+
+    @Test
+    void exportOrdersRequiresAuthentication() throws Exception {
+        mockMvc.perform(get("/orders/export"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void exportOrdersWithUnsupportedFormat() throws Exception {
+        MockHttpSession session = new MockHttpSession();
+
+        mockMvc.perform(post("/auth/login")
+                .session(session)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "phone": "5552223333",
+                        "password": "mike1234"
+                    }
+                    """))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/orders/export")
+                .session(session)
+                .param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void updateRejectionsAreCounted() throws Exception {
+        var conflictsBefore = meterRegistry.counter("orders.update.rejected", "reason", "conflict").count();
+        var notFoundBefore = meterRegistry.counter("orders.update.rejected", "reason", "not_found").count();
+
+        var placeOrderResult = mockMvc.perform(post("/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "firstName": "Mike",
+                        "lastName": "Johnson",
+                        "phone": "5552223333",
+                        "deliveryAddress": "5th Avenue, 13",
+                        "pilotes": 5
+                    }
+                    """))
+            .andExpect(status().isOk())
+            .andReturn();
+        var response = objectMapper.readValue(placeOrderResult.getResponse().getContentAsString(), PlaceOrderResponse.class);
+
+        for (var id : new int[]{response.id(), 100500}) {
+            mockMvc.perform(put("/orders")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(String.format("""
+                        {
+                            "id": %d,
+                            "firstName": "Mike",
+                            "lastName": "Johnson",
+                            "phone": "5552223333",
+                            "deliveryAddress": "5th Avenue, 13",
+                            "pilotes": 10,
+                            "version": 5
+                        }
+                        """, id)))
+                .andExpect(status().is4xxClientError());
+        }
+
+        assertEquals(conflictsBefore + 1, meterRegistry.counter("orders.update.rejected", "reason", "conflict").count());
+        assertEquals(notFoundBefore + 1, meterRegistry.counter("orders.update.rejected", "reason", "not_found").count());
+        assertNotNull(meterRegistry.find("hikaricp.connections.active").gauge());
+        assertNotNull(meterRegistry.find("hikaricp.connections.pending").gauge());
+    }
+
+    @Test
+    void statementStatisticsAreCollected() throws Exception {
+        mockMvc.perform(post("/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "firstName": "Mike",
+                        "lastName": "Johnson",
+                        "phone": "5552223333",
+                        "deliveryAddress": "5th Avenue, 13",
+                        "pilotes": 5
+                    }
+                    """))
+            .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/statements")
+                .with(httpBasic(OPERATOR, OPERATOR_PASSWORD))
+                .param("limit", "100"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[*].sql", hasItem(containsString("insert into orders"))))
+            .andExpect(jsonPath("$[0].calls", greaterThanOrEqualTo(1)));
+    }
+
+    @Test
+    void actuatorEndpointsRequireTheOperatorExceptHealth() throws Exception {
+        var customer = new MockHttpSession();
+        mockMvc.perform(post("/auth/login")
+                .session(customer)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "phone": "5552223333",
+                        "password": "mike1234"
+                    }
+                    """))
+            .andExpect(status().isOk());
+
+        for (var request : List.of(get("/actuator/statements"), delete("/actuator/statements"), get("/actuator/metrics"))) {
+            mockMvc.perform(request)
+                .andExpect(status().isUnauthorized());
+            mockMvc.perform(request.session(customer))
+                .andExpect(status().isUnauthorized());
+            mockMvc.perform(request.with(httpBasic("5552223333", "mike1234")))
+                .andExpect(status().isUnauthorized());
+        }
+        mockMvc.perform(get("/actuator/metrics").with(httpBasic(OPERATOR, "wrong")))
+            .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/metrics").with(httpBasic(OPERATOR, OPERATOR_PASSWORD)))
+            .andExpect(status().isOk());
+
+        // Metrics aren't exported in tests, so there is no prometheus endpoint to check
+        mockMvc.perform(get("/actuator/health"))
+            .andExpect(status().isOk());
+    }
+}
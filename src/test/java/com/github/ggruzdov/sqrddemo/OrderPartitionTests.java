@@ -0,0 +1,139 @@
+package com.github.ggruzdov.sqrddemo;
+
+import com.github.ggruzdov.sqrddemo.service.OrderPartitionMaintenance;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "app.search-cache.enabled=false")
+@AutoConfigureMockMvc
+class OrderPartitionTests {
+
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderPartitionMaintenance partitionMaintenance;
+
+    @Test
+    void searchByDateRangeReadsOnlyItsPartition() throws Exception {
+        var session = login();
+        mockMvc.perform(post("/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "firstName": "Mike",
+                        "lastName": "Partitioned",
+                        "phone": "5552223333",
+                        "deliveryAddress": "5th Avenue, 13",
+                        "pilotes": 5
+                    }
+                    """))
+            .andExpect(status().isOk());
+
+        var month = YearMonth.now(ZoneOffset.UTC);
+        mockMvc.perform(get("/orders/search")
+                .session(session)
+                .param("lastName", "Partitioned")
+                .param("createdFrom", start(month).toInstant().toString())
+                .param("createdTo", start(month.plusMonths(1)).toInstant().toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.content[0].customerLastName", is("Partitioned")));
+        mockMvc.perform(get("/orders/search")
+                .session(session)
+                .param("lastName", "Partitioned")
+                .param("createdTo", start(month).toInstant().toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.page.totalElements", is(0)));
+
+        // Pruned at execution, as the bounds are parameters
+        var plan = jdbcTemplate.queryForList(
+            "EXPLAIN (ANALYZE, COSTS OFF) SELECT count(*) FROM orders WHERE created_at >= ? AND created_at < ?",
+            String.class, start(month), start(month.plusMonths(1))
+        ).stream().collect(Collectors.joining("\n"));
+        assertTrue(plan.contains(partition(month)), plan);
+        assertFalse(plan.contains(partition(month.plusMonths(1))), plan);
+    }
+
+    @Test
+    void upcomingPartitionsAreCreatedAndExpiredOnesArchived() {
+        var month = YearMonth.now(ZoneOffset.UTC);
+        var partitions = jdbcTemplate.queryForList(
+            "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = 'orders'::regclass",
+            String.class
+        );
+        for (int i = 0; i <= 3; i++) {
+            assertTrue(partitions.contains(partition(month.plusMonths(i))), partitions.toString());
+        }
+
+        var expired = YearMonth.of(2000, 1);
+        partitionMaintenance.createPartitions(expired, expired);
+        try {
+            jdbcTemplate.update("""
+                INSERT INTO orders (id, version, customer_first_name, customer_last_name, customer_phone, delivery_address,
+                                    pilotes, total_price, created_at, updated_at)
+                VALUES (nextval('orders_seq'), 1, 'Mike', 'Archived', '5552223333', '5th Avenue, 13', 5, 665, ?, ?)
+                """, start(expired), start(expired));
+
+            partitionMaintenance.archivePartitionsBefore(expired.plusMonths(1));
+
+            assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM orders WHERE customer_last_name = 'Archived'", Integer.class
+            ));
+            assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM orders_archive." + partition(expired), Integer.class
+            ));
+        } finally {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS orders_archive." + partition(expired));
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition(expired));
+        }
+    }
+
+    private static Timestamp start(YearMonth month) {
+        return Timestamp.from(month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant());
+    }
+
+    private static String partition(YearMonth month) {
+        return "orders_p" + month.format(MONTH);
+    }
+
+    private MockHttpSession login() throws Exception {
+        return (MockHttpSession) mockMvc.perform(post("/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "phone": "5552223333",
+                        "password": "mike1234"
+                    }
+                    """))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getRequest()
+            .getSession();
+    }
+}
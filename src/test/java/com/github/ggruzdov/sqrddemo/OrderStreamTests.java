@@ -0,0 +1,308 @@
+package com.github.ggruzdov.sqrddemo;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.OutputStream;
+import java.net.CookieManager;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "app.order-stream.buffer-size=8"
+)
+// No other test shares this context, closing it frees its connections for the rest
+@DirtiesContext
+class OrderStreamTests {
+
+    private static final Pattern ORDER_ID = Pattern.compile("\"id\":(\\d+)");
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private CookieManager cookies;
+    private HttpClient client;
+
+    @BeforeEach
+    void login() throws Exception {
+        cookies = new CookieManager();
+        client = HttpClient.newBuilder().cookieHandler(cookies).build();
+        var response = client.send(HttpRequest.newBuilder(uri("/auth/login"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString("""
+                {
+                    "phone": "5552223333",
+                    "password": "mike1234"
+                }
+                """))
+            .build(), HttpResponse.BodyHandlers.discarding());
+        assertEquals(200, response.statusCode());
+    }
+
+    @Test
+    void streamsPlacedAndUpdatedOrdersOfThePhone() throws Exception {
+        var lines = new LinkedBlockingQueue<String>();
+        var stream = client.send(HttpRequest.newBuilder(uri("/orders/stream?phone=5552223333")).build(), HttpResponse.BodyHandlers.ofLines());
+        assertEquals(200, stream.statusCode());
+        assertTrue(stream.headers().firstValue("Content-Type").orElseThrow().startsWith("text/event-stream"));
+        Thread.ofVirtual().start(() -> stream.body().forEach(lines::add));
+
+        try {
+            placeOrder("5550001111", "Unrelated");
+            placeOrder("5552223333", "Streamed");
+
+            var created = nextEvent(lines, "created");
+            assertTrue(created.contains("\"customerLastName\":\"Streamed\""), created);
+            assertTrue(created.contains("\"totalPrice\":\"6.65\""), created);
+
+            Matcher id = ORDER_ID.matcher(created);
+            assertTrue(id.find(), created);
+            var update = client.send(HttpRequest.newBuilder(uri("/orders"))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString("""
+                    {
+                        "id": %s,
+                        "firstName": "Mike",
+                        "lastName": "Streamed",
+                        "phone": "5552223333",
+                        "deliveryAddress": "5th Avenue, 13",
+                        "pilotes": "10",
+                        "version": 1
+                    }
+                    """.formatted(id.group(1))))
+                .build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, update.statusCode(), update.body());
+
+            var updated = nextEvent(lines, "updated");
+            assertTrue(updated.contains("\"id\":" + id.group(1) + ","), updated);
+            assertTrue(updated.contains("\"pilotes\":10"), updated);
+            assertFalse(String.join("\n", lines).contains("Unrelated"));
+        } finally {
+            stream.body().close();
+        }
+    }
+
+    @Test
+    void subscriberFallingBehindIsDisconnected() throws Exception {
+        var evictions = meterRegistry.counter("orders.stream.evictions").count();
+
+        // A client that never reads, with a small receive buffer so that the server soon can't write to it
+        try (var socket = new Socket()) {
+            socket.setReceiveBufferSize(4096);
+            socket.connect(new InetSocketAddress("localhost", port));
+            OutputStream out = socket.getOutputStream();
+            var session = cookies.getCookieStore().getCookies().stream()
+                .filter(cookie -> cookie.getName().equals("JSESSIONID"))
+                .findFirst()
+                .orElseThrow();
+            out.write(("GET /orders/stream HTTP/1.1\r\nHost: localhost\r\nCookie: JSESSIONID=" + session.getValue()
+                + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            Awaitility.await()
+                .atMost(Duration.ofSeconds(5))
+                .until(() -> meterRegistry.get("orders.stream.subscribers").gauge().value() >= 1);
+
+            // Events big enough for the socket buffers to fill up long before the last one
+            jdbcTemplate.queryForList("""
+                SELECT pg_notify('order_events', json_build_object('type', 'created', 'orders', json_build_array(json_build_object(
+                    'id', i, 'customerFirstName', 'Mike', 'customerLastName', 'Flooded',
+                    'customerPhone', '5552223333', 'deliveryAddress', repeat('x', 4000), 'pilotes', 5,
+                    'totalPrice', 665, 'createdAt', '2025-01-01T00:00:00.000000Z', 'version', 0
+                )))::text)
+                FROM generate_series(1, 5000) i
+                """);
+
+            Awaitility.await()
+                .atMost(Duration.ofSeconds(10))
+                .until(() -> meterRegistry.counter("orders.stream.evictions").count() > evictions);
+        }
+    }
+
+    @Test
+    void batchLargerThanTheBufferReachesSubscribersOfAllOrders() throws Exception {
+        var evictions = meterRegistry.counter("orders.stream.evictions").count();
+        var lines = new LinkedBlockingQueue<String>();
+        var stream = client.send(HttpRequest.newBuilder(uri("/orders/stream")).build(), HttpResponse.BodyHandlers.ofLines());
+        assertEquals(200, stream.statusCode());
+        Thread.ofVirtual().start(() -> stream.body().forEach(lines::add));
+
+        try {
+            // The buffer holds 8 batches of events, the batch is announced by a few notifications
+            var orders = IntStream.range(0, 100)
+                .mapToObj(i -> """
+                    {"firstName": "Mike", "lastName": "Batched", "phone": "555000%04d", "deliveryAddress": "5th Avenue, 13", "pilotes": 5}
+                    """.formatted(i))
+                .collect(Collectors.joining(",", "[", "]"));
+            var response = client.send(HttpRequest.newBuilder(uri("/orders/batch"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(orders))
+                .build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode(), response.body());
+
+            for (int i = 0; i < 100; i++) {
+                String created;
+                do {
+                    created = nextEvent(lines, "created");
+                } while (!created.contains("\"customerLastName\":\"Batched\""));
+            }
+            assertEquals(evictions, meterRegistry.counter("orders.stream.evictions").count());
+        } finally {
+            stream.body().close();
+        }
+    }
+
+    @Test
+    void cachedSearchesAreInvalidatedByWritesOfOtherNodes() throws Exception {
+        // Unique per run, the orders of earlier runs stay
+        var lastName = "Moved" + System.currentTimeMillis();
+        var moved = "\"customerLastName\":\"" + lastName + "\"";
+        placeOrder("5550007001", lastName);
+        assertTrue(search("5550007001").contains(moved));
+        assertFalse(search("5550007002").contains(moved));
+
+        // Written past the services, as another node would, so that only the notification tells the cache
+        jdbcTemplate.update("""
+            UPDATE orders SET customer_phone = '5550007002', version = version + 1
+            WHERE customer_last_name = ?
+            """, lastName);
+
+        // Well within the TTL of the cached searches
+        Awaitility.await()
+            .atMost(Duration.ofSeconds(3))
+            .until(() -> !search("5550007001").contains(moved) && search("5550007002").contains(moved));
+    }
+
+    @Nested
+    @TestPropertySource(properties = {"app.profiling.server-timing=true", "app.order-stream.timeout=4s"})
+    @DirtiesContext
+    class WithServerTiming {
+
+        @LocalServerPort
+        private int serverTimingPort;
+
+        // The enclosing instance is wired to the server without server timing
+        @BeforeEach
+        void loginWithServerTiming() throws Exception {
+            port = serverTimingPort;
+            login();
+        }
+
+        @Test
+        void streamsEventsAfterTheServerTimingHeader() throws Exception {
+            var lines = new LinkedBlockingQueue<String>();
+            // A buffered stream would never send its headers
+            var stream = client.send(HttpRequest.newBuilder(uri("/orders/stream?phone=5552223333"))
+                .timeout(Duration.ofSeconds(5))
+                .build(), HttpResponse.BodyHandlers.ofLines());
+            assertEquals(200, stream.statusCode());
+            assertTrue(stream.headers().firstValue("Server-Timing").orElseThrow().contains("total;dur="));
+            Thread.ofVirtual().start(() -> stream.body().forEach(lines::add));
+
+            try {
+                placeOrder("5552223333", "Timed");
+
+                var created = nextEvent(lines, "created");
+                assertTrue(created.contains("\"customerLastName\":\"Timed\""), created);
+            } finally {
+                stream.body().close();
+            }
+        }
+
+        @Test
+        @ExtendWith(OutputCaptureExtension.class)
+        void streamIsCompletedOnTimeout(CapturedOutput output) throws Exception {
+            var stream = client.send(HttpRequest.newBuilder(uri("/orders/stream")).build(), HttpResponse.BodyHandlers.ofLines());
+            assertEquals(200, stream.statusCode());
+
+            // The response ends as a stream does, reading it up to the end doesn't fail on a broken connection
+            var lines = CompletableFuture.supplyAsync(() -> stream.body().toList()).get(10, TimeUnit.SECONDS);
+            assertEquals(":connected", lines.getFirst());
+            assertFalse(output.getAll().contains("AsyncRequestTimeoutException"), "The timeout was handled as an error");
+        }
+    }
+
+    private void placeOrder(String phone, String lastName) throws Exception {
+        var response = client.send(HttpRequest.newBuilder(uri("/orders"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString("""
+                {
+                    "firstName": "Mike",
+                    "lastName": "%s",
+                    "phone": "%s",
+                    "deliveryAddress": "5th Avenue, 13",
+                    "pilotes": 5
+                }
+                """.formatted(lastName, phone)))
+            .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode(), response.body());
+    }
+
+    private String search(String phone) throws Exception {
+        var response = client.send(HttpRequest.newBuilder(uri("/orders/search?phone=" + phone)).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode(), response.body());
+        return response.body();
+    }
+
+    // The data of the next event of the given name, skipping others
+    private static String nextEvent(BlockingQueue<String> lines, String name) throws InterruptedException {
+        var skipped = new ArrayList<String>();
+        var event = false;
+        while (true) {
+            var line = lines.poll(5, TimeUnit.SECONDS);
+            assertNotNull(line, "No " + name + " event, got " + skipped);
+            skipped.add(line);
+            if (line.equals("event:" + name)) {
+                event = true;
+            } else if (event && line.startsWith("data:")) {
+                return line.substring("data:".length());
+            } else if (line.isEmpty()) {
+                event = false;
+            }
+        }
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+}
@@ -0,0 +1,166 @@
+package com.github.ggruzdov.sqrddemo;
+
+import com.github.ggruzdov.sqrddemo.service.CustomerService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+    "app.password-hashing.strength=5",
+    "app.password-hashing.threads=1",
+    "app.password-hashing.queue-capacity=1",
+    "app.password-hashing.rehash-on-login=true"
+})
+@AutoConfigureMockMvc
+// No other test shares this context, closing it frees its connections for the rest
+@DirtiesContext
+class PasswordHashingTests {
+
+    private static final String REHASHED_PHONE = "5554440000";
+    private static final String REHASHED_PASSWORD = "rehash1234";
+    // Checking a password against a cost of 14 keeps the only hashing thread busy for a second or so
+    private static final String SLOW_HASH = "$2a$14$" + "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void deleteRehashedCustomer() {
+        jdbcTemplate.update("DELETE FROM customers WHERE phone = ?", REHASHED_PHONE);
+        customerService.evictUser(REHASHED_PHONE);
+    }
+
+    @Test
+    void loginIsRejectedWhileTheHashingQueueIsFull() throws Exception {
+        var hashing = fillHashingQueue();
+
+        login("5552223333", "mike1234")
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(jsonPath("$.error").value("Service unavailable"));
+
+        hashing.join();
+        login("5552223333", "mike1234")
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    void hashingIsTimed() throws Exception {
+        // The first login also hashes the dummy password checked against unknown phones
+        login("5552223333", "mike1234")
+            .andExpect(status().isOk());
+        var queueWaits = meterRegistry.timer("auth.password.queue.wait").count();
+        var hashes = meterRegistry.timer("auth.password.hash").count();
+
+        login("5552223333", "mike1234")
+            .andExpect(status().isOk());
+
+        assertEquals(queueWaits + 1, meterRegistry.timer("auth.password.queue.wait").count());
+        assertEquals(hashes + 1, meterRegistry.timer("auth.password.hash").count());
+        assertTrue(meterRegistry.timer("auth.password.hash").totalTime(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test
+    void weakerHashIsUpgradedOnLogin() throws Exception {
+        var weakHash = new BCryptPasswordEncoder(4).encode(REHASHED_PASSWORD);
+        jdbcTemplate.update(
+            "INSERT INTO customers (first_name, last_name, phone, password) VALUES ('Weak', 'Hash', ?, ?)",
+            REHASHED_PHONE, weakHash
+        );
+
+        login(REHASHED_PHONE, REHASHED_PASSWORD)
+            .andExpect(status().isOk());
+        var upgradedHash = storedHash();
+        assertNotEquals(weakHash, upgradedHash);
+        assertTrue(upgradedHash.startsWith("$2a$05$"), upgradedHash);
+
+        // The cached credentials were evicted with the upgrade, so the next login loads the new hash and keeps it
+        var misses = customerService.userCacheStats().missCount();
+        login(REHASHED_PHONE, REHASHED_PASSWORD)
+            .andExpect(status().isOk());
+        assertEquals(misses + 1, customerService.userCacheStats().missCount());
+        assertEquals(upgradedHash, storedHash());
+    }
+
+    @Test
+    void weakerHashIsKeptWhileTheHashingQueueIsFull() throws Exception {
+        var weakHash = new BCryptPasswordEncoder(4).encode(REHASHED_PASSWORD);
+        jdbcTemplate.update(
+            "INSERT INTO customers (first_name, last_name, phone, password) VALUES ('Weak', 'Hash', ?, ?)",
+            REHASHED_PHONE, weakHash
+        );
+
+        // The password was checked already, only the upgrade finds the queue full and is given up
+        var hashing = fillHashingQueue();
+        customerService.rehashIfNecessary(REHASHED_PHONE, REHASHED_PASSWORD);
+        assertEquals(weakHash, storedHash());
+
+        hashing.join();
+        login(REHASHED_PHONE, REHASHED_PASSWORD)
+            .andExpect(status().isOk());
+        assertTrue(storedHash().startsWith("$2a$05$"), storedHash());
+    }
+
+    // One check runs on the hashing thread, the other one fills the queue. The second one is started only once
+    // the first one left the queue, an idle hashing thread may not have taken it yet and the queue holds one
+    private CompletableFuture<Void> fillHashingQueue() {
+        var queueWaits = meterRegistry.timer("auth.password.queue.wait").count();
+        var running = CompletableFuture.runAsync(() -> passwordEncoder.matches("wrong", SLOW_HASH));
+        Awaitility.await()
+            .atMost(Duration.ofSeconds(5))
+            .until(() -> meterRegistry.timer("auth.password.queue.wait").count() == queueWaits + 1);
+        var queued = CompletableFuture.runAsync(() -> passwordEncoder.matches("wrong", SLOW_HASH));
+        Awaitility.await()
+            .atMost(Duration.ofSeconds(5))
+            .until(() -> meterRegistry.get("auth.password.queue.size").gauge().value() == 1);
+        return CompletableFuture.allOf(running, queued);
+    }
+
+    private String storedHash() {
+        return jdbcTemplate.queryForObject("SELECT password FROM customers WHERE phone = ?", String.class, REHASHED_PHONE);
+    }
+
+    private ResultActions login(String phone, String password) throws Exception {
+        return mockMvc.perform(post("/auth/login")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("""
+                {
+                    "phone": "%s",
+                    "password": "%s"
+                }
+                """.formatted(phone, password)));
+    }
+}
@@ -0,0 +1,182 @@
+package com.github.ggruzdov.sqrddemo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+        "app.session.token.secret=0123456789abcdef0123456789abcdef",
+        "app.operator.password=" + ReactiveStackTests.OPERATOR_PASSWORD
+    }
+)
+@ActiveProfiles("reactive")
+// No other test shares the reactive context, closing it frees its JDBC and R2DBC connections for the rest
+@DirtiesContext
+class ReactiveStackTests {
+
+    static final String OPERATOR_PASSWORD = "operator1234";
+    private static final String COOKIE_NAME = "SQRD_SESSION";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    private String token;
+
+    @BeforeEach
+    void login() {
+        var cookie = webTestClient.post().uri("/auth/login")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("""
+                {
+                    "phone": "5552223333",
+                    "password": "mike1234"
+                }
+                """)
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(Void.class)
+            .getResponseCookies()
+            .getFirst(COOKIE_NAME);
+        assertNotNull(cookie, "Session token cookie should be issued");
+        token = cookie.getValue();
+    }
+
+    @Test
+    void loginWithWrongPassword() {
+        webTestClient.post().uri("/auth/login")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("""
+                {
+                    "phone": "5552223333",
+                    "password": "wrong"
+                }
+                """)
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody()
+            .jsonPath("$.error").isEqualTo("Bad request");
+    }
+
+    @Test
+    void placeOrderWithInvalidData() {
+        webTestClient.post().uri("/orders")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(order("123", "Reactive", "7"))
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody()
+            .jsonPath("$.error").isEqualTo("Validation failed")
+            .jsonPath("$.message").value(containsString("phone: Phone number must be exactly 10 digits"))
+            .jsonPath("$.message").value(containsString("pilotes: Pilotes quantity must be either 5, 10, or 15"));
+    }
+
+    @Test
+    void searchOrdersWithoutAuthentication() {
+        webTestClient.get().uri("/orders/search")
+            .exchange()
+            .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    void actuatorEndpointsRequireTheOperatorExceptHealth() {
+        webTestClient.get().uri("/actuator/metrics")
+            .exchange()
+            .expectStatus().isUnauthorized();
+        webTestClient.get().uri("/actuator/metrics")
+            .cookie(COOKIE_NAME, token)
+            .exchange()
+            .expectStatus().isUnauthorized();
+        webTestClient.get().uri("/actuator/metrics")
+            .headers(headers -> headers.setBasicAuth("operator", OPERATOR_PASSWORD))
+            .exchange()
+            .expectStatus().isOk();
+
+        webTestClient.get().uri("/actuator/health")
+            .exchange()
+            .expectStatus().isOk();
+    }
+
+    @Test
+    void placeThenSearchOrders() {
+        var lastName = "Reactive" + UUID.randomUUID().toString().substring(0, 8);
+        for (var pilotes : new String[]{"10", "15", "5"}) {
+            webTestClient.post().uri("/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(order("5552223333", lastName, pilotes))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").value(greaterThan(0));
+        }
+
+        webTestClient.get().uri("/orders/search?lastName={lastName}&sort=totalPrice,desc&pagination.page=1&pagination.limit=2", lastName)
+            .cookie(COOKIE_NAME, token)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.content.length()").isEqualTo(2)
+            .jsonPath("$.content[0].pilotes").isEqualTo(15)
+            .jsonPath("$.content[0].totalPrice").isEqualTo("19.95")
+            .jsonPath("$.content[0].customerLastName").isEqualTo(lastName)
+            .jsonPath("$.content[1].pilotes").isEqualTo(10)
+            .jsonPath("$.page.totalElements").isEqualTo(3)
+            .jsonPath("$.page.totalPages").isEqualTo(2)
+            .jsonPath("$.page.hasNext").isEqualTo(true)
+            .jsonPath("$.page.count").isEqualTo("EXACT");
+
+        webTestClient.get().uri("/orders/search?lastName={lastName}&sort=totalPrice,desc&pagination.page=2&pagination.limit=2&count=none", lastName)
+            .cookie(COOKIE_NAME, token)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.content.length()").isEqualTo(1)
+            .jsonPath("$.content[0].pilotes").isEqualTo(5)
+            .jsonPath("$.page.totalElements").doesNotExist()
+            .jsonPath("$.page.hasNext").isEqualTo(false)
+            .jsonPath("$.page.count").isEqualTo("NONE");
+
+        webTestClient.get().uri("/orders/search?lastName={lastName}&pagination.page=1&pagination.limit=2&count=estimate", lastName)
+            .cookie(COOKIE_NAME, token)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.content.length()").isEqualTo(2)
+            .jsonPath("$.page.totalElements").value(greaterThan(2))
+            .jsonPath("$.page.count").isEqualTo("ESTIMATE");
+    }
+
+    @Test
+    void searchWithUnsupportedSort() {
+        webTestClient.get().uri("/orders/search?sort=phone")
+            .cookie(COOKIE_NAME, token)
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody()
+            .jsonPath("$.error").isEqualTo("Validation failed");
+    }
+
+    private static String order(String phone, String lastName, String pilotes) {
+        return """
+            {
+                "phone": "%s",
+                "firstName": "Mike",
+                "lastName": "%s",
+                "deliveryAddress": "Reactive Street, 1",
+                "pilotes": "%s"
+            }
+            """.formatted(phone, lastName, pilotes);
+    }
+}
@@ -0,0 +1,124 @@
+package com.github.ggruzdov.sqrddemo;
+
+import com.github.ggruzdov.sqrddemo.config.ReadReplicaRouter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The first replica is a second connection to the test database, the second one is down.
+// Health checks only run at startup and when the test asks for them.
+@SpringBootTest(properties = {
+    "app.read-replicas.enabled=true",
+    "app.read-replicas.urls=jdbc:postgresql://localhost:5432/orders,jdbc:postgresql://localhost:1/orders",
+    "app.read-replicas.connection-timeout=250ms",
+    "app.read-replicas.health-check-interval=1h",
+    "app.search-cache.enabled=false"
+})
+@AutoConfigureMockMvc
+// No other test shares this context, closing it frees its connections for the rest
+@DirtiesContext
+class ReadReplicaTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ReadReplicaRouter router;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void searchesReadFromReplicasOnceTheyHaveTheCustomersWrites() throws Exception {
+        var session = login();
+        router.checkHealth();
+
+        assertReadFrom("replica-1", session);
+        assertReadFrom("replica-1", session);
+
+        mockMvc.perform(post("/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "firstName": "Mike",
+                        "lastName": "Replicated",
+                        "phone": "5552223333",
+                        "deliveryAddress": "5th Avenue, 13",
+                        "pilotes": 5
+                    }
+                    """))
+            .andExpect(status().isOk());
+
+        // No health check has seen the replica with the new order yet
+        assertReadFrom("primary", session);
+
+        router.checkHealth();
+        assertReadFrom("replica-1", session);
+    }
+
+    @Test
+    void readOnlyConnectionsWithTheConfiguredCredentialsGoToReplicas() throws Exception {
+        router.checkHealth();
+        var before = reads("replica-1");
+
+        try (var connection = dataSource.getConnection("user", "password")) {
+            connection.setReadOnly(true);
+            try (var statement = connection.createStatement(); var resultSet = statement.executeQuery("SELECT 1")) {
+                assertTrue(resultSet.next());
+            }
+        }
+
+        assertEquals(before + 1, reads("replica-1"));
+    }
+
+    private void assertReadFrom(String target, MockHttpSession session) throws Exception {
+        var before = reads(target);
+        var othersBefore = reads("replica-1") + reads("replica-2") + reads("primary") - before;
+
+        mockMvc.perform(get("/orders/search")
+                .session(session)
+                .param("lastName", "Replicated")
+                .param("count", "none"))
+            .andExpect(status().isOk());
+
+        assertEquals(before + 1, reads(target));
+        assertEquals(othersBefore, reads("replica-1") + reads("replica-2") + reads("primary") - reads(target));
+    }
+
+    private double reads(String target) {
+        var counter = meterRegistry.find("db.read.routed").tag("target", target).counter();
+        return counter != null ? counter.count() : 0;
+    }
+
+    private MockHttpSession login() throws Exception {
+        return (MockHttpSession) mockMvc.perform(post("/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "phone": "5552223333",
+                        "password": "mike1234"
+                    }
+                    """))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getRequest()
+            .getSession();
+    }
+}
@@ -0,0 +1,151 @@
+package com.github.ggruzdov.sqrddemo;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ggruzdov.sqrddemo.profiling.StatementStatisticsListener;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "app.search-cache.enabled=false")
+@AutoConfigureMockMvc
+class SearchIndexTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Autowired
+    private StatementStatisticsListener statementStatistics;
+
+    @Test
+    void everyFilterCombinationIsServedByAnIndex() throws Exception {
+        var session = login();
+        var now = Instant.now();
+
+        statementStatistics.reset();
+        for (int filters = 0; filters < 32; filters++) {
+            var search = get("/orders/search")
+                .session(session)
+                .param("pagination.page", "1")
+                .param("pagination.limit", "1");
+            if ((filters & 1) != 0) {
+                search.param("phone", "5552223333");
+            }
+            if ((filters & 2) != 0) {
+                search.param("firstName", "Mik");
+            }
+            if ((filters & 4) != 0) {
+                search.param("lastName", "ohn");
+            }
+            if ((filters & 8) != 0) {
+                search.param("createdFrom", now.minus(1, ChronoUnit.DAYS).toString());
+            }
+            if ((filters & 16) != 0) {
+                search.param("createdTo", now.toString());
+            }
+            mockMvc.perform(search).andExpect(status().isOk());
+        }
+
+        var searches = statementStatistics.statistics()
+            .stream()
+            .map(StatementStatisticsListener.StatementStatistics::sql)
+            .filter(sql -> sql.contains(" from orders "))
+            .toList();
+        assertTrue(searches.size() >= 32, searches.toString());
+
+        // The test database is too small for the planner to prefer an index on its own, so sequential scans are
+        // priced out, and whatever scan is left must be an index one. A page may still be read in the order of an
+        // index and filtered, but a count has no order to follow, so it must find the orders through an index
+        // condition. A generic plan, as the one of a prepared statement, can't rely on the values of the parameters.
+        // It is only explained over the simple query protocol, which leaves the parameters unbound
+        var url = dataSourceProperties.determineUrl();
+        var explainDataSource = new SingleConnectionDataSource(
+            url + (url.contains("?") ? "&" : "?") + "preferQueryMode=simple",
+            dataSourceProperties.determineUsername(),
+            dataSourceProperties.determinePassword(),
+            true
+        );
+        try {
+            var jdbcTemplate = new JdbcTemplate(explainDataSource);
+            jdbcTemplate.execute("SET enable_seqscan = off");
+            for (var sql : searches) {
+                var plan = jdbcTemplate.queryForObject(
+                    "EXPLAIN (GENERIC_PLAN, FORMAT JSON) " + numberParameters(sql), String.class
+                );
+                var scans = scans(objectMapper.readTree(plan).get(0).get("Plan"), new ArrayList<>());
+                var filteredCount = sql.startsWith("select count(") && sql.contains(" where ");
+                for (var scan : scans) {
+                    var type = scan.get("Node Type").asText();
+                    assertNotEquals("Seq Scan", type, sql + "\n" + plan);
+                    if (filteredCount && type.contains("Index")) {
+                        assertTrue(scan.has("Index Cond"), sql + "\n" + plan);
+                    }
+                }
+            }
+        } finally {
+            explainDataSource.destroy();
+        }
+    }
+
+    private static List<JsonNode> scans(JsonNode node, List<JsonNode> scans) {
+        if (node.get("Node Type").asText().endsWith("Scan")) {
+            scans.add(node);
+        }
+        if (node.has("Plans")) {
+            node.get("Plans").forEach(child -> scans(child, scans));
+        }
+        return scans;
+    }
+
+    private static String numberParameters(String sql) {
+        var numbered = new StringBuilder();
+        int parameter = 0;
+        for (var c : sql.toCharArray()) {
+            if (c == '?') {
+                numbered.append('$').append(++parameter);
+            } else {
+                numbered.append(c);
+            }
+        }
+        return numbered.toString();
+    }
+
+    private MockHttpSession login() throws Exception {
+        return (MockHttpSession) mockMvc.perform(post("/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "phone": "5552223333",
+                        "password": "mike1234"
+                    }
+                    """))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getRequest()
+            .getSession();
+    }
+}
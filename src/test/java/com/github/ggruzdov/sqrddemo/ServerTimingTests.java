@@ -0,0 +1,124 @@
+package com.github.ggruzdov.sqrddemo;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+    "app.profiling.server-timing=true",
+    "app.search-cache.enabled=false"
+})
+@AutoConfigureMockMvc
+// No other test shares this context, closing it frees its connections for the rest
+@DirtiesContext
+class ServerTimingTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void searchReportsPhaseTimings() throws Exception {
+        var session = login();
+        // A full first page, so that the count query runs too
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/orders")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("""
+                        {
+                            "firstName": "Server",
+                            "lastName": "Timing",
+                            "phone": "5552223333",
+                            "deliveryAddress": "5th Avenue, 13",
+                            "pilotes": 5
+                        }
+                        """))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Server-Timing", containsString("insert;dur=")));
+        }
+
+        mockMvc.perform(get("/orders/search")
+                .param("lastName", "Timing")
+                .param("pagination.page", "1")
+                .param("pagination.limit", "1")
+                .session(session))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.content.length()").value(1))
+            .andExpect(header().string("Server-Timing", allOf(
+                containsString("session;dur="),
+                containsString("validation;dur="),
+                containsString("query;dur="),
+                containsString("count;dur="),
+                containsString("render;dur="),
+                containsString("total;dur=")
+            )));
+    }
+
+    @Test
+    void searchEmitsFlightRecorderEvents() throws Exception {
+        var session = login();
+        var file = Files.createTempFile("search", ".jfr");
+
+        try (var recording = new Recording()) {
+            recording.enable("com.github.ggruzdov.sqrddemo.Request").withThreshold(Duration.ZERO);
+            recording.enable("com.github.ggruzdov.sqrddemo.RequestPhase").withThreshold(Duration.ZERO);
+            recording.start();
+
+            mockMvc.perform(get("/orders/search")
+                    .session(session))
+                .andExpect(status().isOk());
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        var events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+
+        Set<String> phases = events.stream()
+            .filter(event -> event.getEventType().getName().endsWith("RequestPhase"))
+            .map(event -> event.getString("phase"))
+            .collect(Collectors.toSet());
+        assertTrue(phases.containsAll(Set.of("session", "validation", "query", "render")), "Phases recorded: " + phases);
+        assertTrue(events.stream()
+            .filter(event -> event.getEventType().getName().endsWith(".Request"))
+            .map(RecordedEvent::toString)
+            .anyMatch(event -> event.contains("/orders/search")), "Request event should be recorded");
+    }
+
+    private MockHttpSession login() throws Exception {
+        return (MockHttpSession) mockMvc.perform(post("/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "phone": "5552223333",
+                        "password": "mike1234"
+                    }
+                    """))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getRequest()
+            .getSession();
+    }
+}
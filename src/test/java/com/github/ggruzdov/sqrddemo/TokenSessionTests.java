@@ -0,0 +1,87 @@
+package com.github.ggruzdov.sqrddemo;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+    "app.session.mode=token",
+    "app.session.token.secret=0123456789abcdef0123456789abcdef"
+})
+@AutoConfigureMockMvc
+// No other test shares this context, closing it frees its connections for the rest
+@DirtiesContext
+class TokenSessionTests {
+
+    private static final String COOKIE_NAME = "SQRD_SESSION";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void loginIssuesTokenWithoutHttpSession() throws Exception {
+        var loginResult = login();
+
+        assertNull(loginResult.getRequest().getSession(false), "No HttpSession should be created in token mode");
+        assertNotNull(loginResult.getResponse().getCookie(COOKIE_NAME), "Session token cookie should be issued");
+    }
+
+    @Test
+    void searchWithToken() throws Exception {
+        var token = login().getResponse().getCookie(COOKIE_NAME);
+
+        mockMvc.perform(get("/orders/search")
+                .cookie(token))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    void searchWithTamperedToken() throws Exception {
+        var token = login().getResponse().getCookie(COOKIE_NAME);
+        var tampered = new Cookie(COOKIE_NAME, token.getValue().replaceFirst("^.", "A"));
+
+        mockMvc.perform(get("/orders/search")
+                .cookie(tampered))
+            .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void logoutClearsToken() throws Exception {
+        var token = login().getResponse().getCookie(COOKIE_NAME);
+
+        var logoutResult = mockMvc.perform(post("/auth/logout")
+                .cookie(token))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        var cleared = logoutResult.getResponse().getCookie(COOKIE_NAME);
+        assertNotNull(cleared, "Session token cookie should be cleared on logout");
+        assertEquals(0, cleared.getMaxAge());
+    }
+
+    private MvcResult login() throws Exception {
+        return mockMvc.perform(post("/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "phone": "5552223333",
+                        "password": "mike1234"
+                    }
+                    """))
+            .andExpect(status().isOk())
+            .andReturn();
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.ggruzdov.sqrddemo.benchmark;
+
+import com.github.ggruzdov.sqrddemo.SqrdDemoApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Starts the application for benchmarks working against the database, which has to be running already,
+ * e.g. {@code docker compose -f compose-db.yml up -d}.
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(Map<String, Object> properties) {
+        var overrides = new HashMap<String, Object>(Map.of(
+            "server.port", "0",
+            "spring.docker.compose.enabled", "false",
+            "spring.jpa.show-sql", "false",
+            "logging.level.root", "warn"
+        ));
+        overrides.putAll(properties);
+
+        // Passed as command line arguments to take precedence over application.yml
+        var args = overrides.entrySet()
+            .stream()
+            .map(property -> "--" + property.getKey() + "=" + property.getValue())
+            .toArray(String[]::new);
+        return SpringApplication.run(SqrdDemoApplication.class, args);
+    }
+}
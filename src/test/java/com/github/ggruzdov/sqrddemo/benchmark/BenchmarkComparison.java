@@ -0,0 +1,85 @@
+package com.github.ggruzdov.sqrddemo.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON results, e.g. of the previous and the upcoming release, and exits with status 1
+ * if any benchmark got slower than the threshold. Only benchmarks present in both results are compared.
+ * <p>
+ * Run with {@code -Dbenchmark.main=com.github.ggruzdov.sqrddemo.benchmark.BenchmarkComparison
+ * -Dbenchmark.args="baseline.json target/jmh-result.json 10"}, the threshold is in percent and defaults to 10.
+ */
+public class BenchmarkComparison {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkComparison <baseline.json> <current.json> [threshold percent]");
+            System.exit(2);
+        }
+        var threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+
+        var baseline = read(new File(args[0]));
+        var current = read(new File(args[1]));
+
+        var regressions = 0;
+        System.out.printf("%-90s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+        for (var entry : new TreeMap<>(current).entrySet()) {
+            var before = baseline.get(entry.getKey());
+            if (before == null) {
+                continue;
+            }
+
+            var after = entry.getValue();
+            var change = (after.score() - before.score()) / before.score() * 100;
+            // In throughput mode a lower score is worse, in all time modes a higher one
+            var slowdown = after.higherIsBetter() ? -change : change;
+            var regressed = slowdown > threshold;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%% %s%s%n",
+                entry.getKey(), before.score(), after.score(), change, after.unit(), regressed ? "  REGRESSION" : "");
+        }
+
+        if (regressions > 0) {
+            System.out.printf("%d benchmark(s) regressed by more than %.1f%%%n", regressions, threshold);
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Score> read(File file) throws IOException {
+        var scores = new LinkedHashMap<String, Score>();
+        for (var result : new ObjectMapper().readTree(file)) {
+            var metric = result.get("primaryMetric");
+            scores.put(key(result), new Score(
+                metric.get("score").asDouble(),
+                metric.get("scoreUnit").asText(),
+                "thrpt".equals(result.get("mode").asText())
+            ));
+        }
+        return scores;
+    }
+
+    private static String key(JsonNode result) {
+        var key = new StringBuilder(result.get("benchmark").asText());
+        var params = result.get("params");
+        if (params != null) {
+            params.fields().forEachRemaining(param -> key.append(':').append(param.getKey()).append('=').append(param.getValue().asText()));
+        }
+        return key.toString();
+    }
+
+    private record Score(
+        double score,
+        String unit,
+        boolean higherIsBetter
+    ) {
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.ggruzdov.sqrddemo.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH entry point of the {@code benchmark} profile. Same options as {@code org.openjdk.jmh.Main}, but unless
+ * {@code -rf}/{@code -rff} are given, results are also written as JSON to {@code target/jmh-result.json}
+ * to be kept per release and compared with {@link BenchmarkComparison}.
+ */
+public class BenchmarkRunner {
+
+    static final String DEFAULT_RESULT = "target/jmh-result.json";
+
+    public static void main(String[] args) throws Exception {
+        var options = new CommandLineOptions(args);
+        if (options.shouldHelp() || options.shouldList() || options.shouldListWithParams()
+            || options.shouldListProfilers() || options.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        var builder = new OptionsBuilder().parent(options);
+        if (!options.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+            if (!options.getResult().hasValue()) {
+                builder.result(DEFAULT_RESULT);
+            }
+        }
+
+        new Runner(builder.build()).run();
+    }
+}
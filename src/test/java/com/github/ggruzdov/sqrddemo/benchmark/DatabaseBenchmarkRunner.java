@@ -0,0 +1,350 @@
+package com.github.ggruzdov.sqrddemo.benchmark;
+
+import com.github.ggruzdov.sqrddemo.model.Order;
+import com.github.ggruzdov.sqrddemo.request.CountMode;
+import com.github.ggruzdov.sqrddemo.request.CursorPagination;
+import com.github.ggruzdov.sqrddemo.request.OrderCursor;
+import com.github.ggruzdov.sqrddemo.request.Pagination;
+import com.github.ggruzdov.sqrddemo.request.PlaceOrderRequest;
+import com.github.ggruzdov.sqrddemo.request.SearchOrderRequest;
+import com.github.ggruzdov.sqrddemo.request.UpdateOrderRequest;
+import com.github.ggruzdov.sqrddemo.service.OrderService;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Latency of the order service against the data loaded by {@link OrderDataGenerator}: search by every combination
+ * of the filters and count modes, offset and keyset pages at growing depth, updates of the same orders from concurrent
+ * threads, and orders placed one by one vs in a batch. The search cache is disabled, so every search reaches the database.
+ * <p>
+ * Run with {@code -Dbenchmark.main=com.github.ggruzdov.sqrddemo.benchmark.DatabaseBenchmarkRunner
+ * -Dbenchmark.args="samples=200 threads=16"}, {@code scenarios=updates,inserts} runs some of
+ * {@code search,counts,pages,updates,inserts} only, and {@code db-latency=1ms} puts the database behind a
+ * {@link LatencyProxy} adding the latency in each direction. The report is written as markdown and CSV
+ * to {@code target/database-benchmark}, the CSV of two runs can be diffed line by line.
+ */
+public class DatabaseBenchmarkRunner {
+
+    private static final int PAGE_SIZE = 20;
+    private static final int[] PAGE_DEPTHS = {1, 100, 1_000, 10_000};
+    private static final int UPDATED_ORDERS = 100;
+    private static final int BULK_ORDERS = 1000;
+    private static final int BULK_ROUNDS = 5;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final OrderService orderService;
+    private final JdbcTemplate jdbcTemplate;
+    private final int samples;
+    private final int warmup;
+    private final int threads;
+    private final Duration dbLatency;
+    private final List<Result> results = new ArrayList<>();
+
+    DatabaseBenchmarkRunner(OrderService orderService, JdbcTemplate jdbcTemplate, Duration dbLatency, Map<String, String> options) {
+        this.orderService = orderService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.samples = Integer.parseInt(options.getOrDefault("samples", "200"));
+        this.warmup = Integer.parseInt(options.getOrDefault("warmup", "20"));
+        this.threads = Integer.parseInt(options.getOrDefault("threads", "16"));
+        this.dbLatency = dbLatency;
+    }
+
+    public static void main(String[] args) throws Exception {
+        var options = new HashMap<String, String>();
+        for (var arg : args) {
+            var parts = arg.split("=", 2);
+            options.put(parts[0], parts[1]);
+        }
+
+        var dbLatency = DurationStyle.detectAndParse(options.getOrDefault("db-latency", "0ms"));
+        var properties = new HashMap<String, Object>(Map.of(
+            "app.search-cache.enabled", "false",
+            "app.order-update-lifetime", "1h"
+        ));
+        var database = new InetSocketAddress(System.getenv().getOrDefault("POSTGRES_HOST", "localhost"), 5432);
+        try (var proxy = dbLatency.isZero() ? null : new LatencyProxy(database, dbLatency)) {
+            if (proxy != null) {
+                properties.put("spring.datasource.url", "jdbc:postgresql://localhost:" + proxy.port() + "/orders?reWriteBatchedInserts=true");
+            }
+            run(properties, dbLatency, options);
+        }
+    }
+
+    private static void run(Map<String, Object> properties, Duration dbLatency, Map<String, String> options) throws IOException {
+        try (var context = BenchmarkApplication.start(properties)) {
+            var jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+            var runner = new DatabaseBenchmarkRunner(context.getBean(OrderService.class), jdbcTemplate, dbLatency, options);
+
+            var scenarios = Arrays.asList(options.getOrDefault("scenarios", "search,counts,pages,updates,inserts").split(","));
+            if (scenarios.contains("search")) {
+                runner.searchByFilters();
+            }
+            if (scenarios.contains("counts")) {
+                runner.countModes();
+            }
+            if (scenarios.contains("pages")) {
+                runner.deepPages();
+            }
+            if (scenarios.contains("updates")) {
+                runner.concurrentUpdates();
+            }
+            if (scenarios.contains("inserts")) {
+                runner.bulkInserts();
+            }
+            runner.report(Path.of(options.getOrDefault("report", "target/database-benchmark")));
+        }
+    }
+
+    private void searchByFilters() {
+        // The most frequent customer and substrings of the most frequent names
+        var phone = OrderDataGenerator.phone(1);
+        var firstName = OrderDataGenerator.FIRST_NAMES[0].substring(1, 4);
+        var lastName = OrderDataGenerator.LAST_NAMES[0].substring(1, 5);
+
+        for (int mask = 0; mask < 8; mask++) {
+            var request = new SearchOrderRequest(
+                (mask & 1) != 0 ? phone : null,
+                (mask & 2) != 0 ? firstName : null,
+                (mask & 4) != 0 ? lastName : null,
+                null,
+                null,
+                null,
+                new Pagination(1, PAGE_SIZE),
+                null
+            );
+            var name = "search " + ((mask & 1) != 0 ? "phone " : "") + ((mask & 2) != 0 ? "firstName " : "")
+                + ((mask & 4) != 0 ? "lastName " : "") + (mask == 0 ? "no filter " : "");
+            measure(name.trim(), () -> orderService.searchOrders(request, CountMode.EXACT));
+        }
+    }
+
+    // The count query of the broadest name filter, vs only fetching a row more and planning the count
+    private void countModes() {
+        var lastName = OrderDataGenerator.LAST_NAMES[0].substring(1, 5);
+        var request = new SearchOrderRequest(null, null, lastName, null, null, null, new Pagination(1, PAGE_SIZE), null);
+        for (var countMode : CountMode.values()) {
+            measure("search lastName count " + countMode.name().toLowerCase(Locale.ROOT), () -> orderService.searchOrders(request, countMode));
+        }
+
+        // Only the partitions of the last month are read
+        var now = Instant.now();
+        var lastMonth = new SearchOrderRequest(null, null, lastName, now.minus(30, ChronoUnit.DAYS), now, null, new Pagination(1, PAGE_SIZE), null);
+        measure("search lastName last month", () -> orderService.searchOrders(lastMonth, CountMode.EXACT));
+    }
+
+    private void deepPages() {
+        for (var depth : PAGE_DEPTHS) {
+            var offsetRequest = new SearchOrderRequest(null, null, null, null, null, null, new Pagination(depth, PAGE_SIZE), null);
+            measure("offset page " + depth, () -> orderService.searchOrders(offsetRequest, CountMode.EXACT));
+
+            var cursor = cursorBefore((long) (depth - 1) * PAGE_SIZE);
+            var keysetRequest = new SearchOrderRequest(null, null, null, null, null, null, null, new CursorPagination(cursor, PAGE_SIZE));
+            measure("keyset page " + depth, () -> orderService.searchOrdersByCursor(keysetRequest));
+        }
+    }
+
+    // Cursor of the last order of the previous page, as a client paging from the first one would have it
+    private String cursorBefore(long offset) {
+        if (offset == 0) {
+            return null;
+        }
+        return jdbcTemplate.queryForObject(
+            "SELECT created_at, id FROM orders ORDER BY created_at DESC, id DESC OFFSET ? LIMIT 1",
+            (rs, rowNum) -> new OrderCursor(rs.getTimestamp("created_at").toInstant(), rs.getInt("id")).encode(),
+            offset - 1
+        );
+    }
+
+    private void concurrentUpdates() {
+        var orders = orderService.placeOrders(IntStream.range(0, UPDATED_ORDERS)
+            .mapToObj(i -> new PlaceOrderRequest(OrderDataGenerator.phone(i + 1), "Bench", "Updates", "Calle Mayor 1, 1", "5"))
+            .toList());
+
+        // The version last seen of every order, a placed order has the first one
+        var versions = new AtomicIntegerArray(orders.size());
+        IntStream.range(0, orders.size()).forEach(i -> versions.set(i, 1));
+
+        var latencies = new long[samples];
+        var next = new AtomicInteger();
+        var failures = new AtomicInteger();
+        var start = new CountDownLatch(1);
+        var started = 0L;
+        try (var executor = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; t++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = next.getAndIncrement(); i < samples; i = next.getAndIncrement()) {
+                        var random = ThreadLocalRandom.current();
+                        var index = random.nextInt(orders.size());
+                        var order = orders.get(index);
+                        // Every update changes the address, a load-and-flush update of unchanged values wouldn't write
+                        // Concurrent updates of the same order conflict, as they would for clients, and count as failures
+                        var request = new UpdateOrderRequest(
+                            order.getId(), order.getCustomerPhone(), "Bench", "Updates", "Calle Mayor " + i + ", 1",
+                            String.valueOf(5 * (1 + random.nextInt(3))), versions.get(index)
+                        );
+                        var begin = System.nanoTime();
+                        try {
+                            versions.accumulateAndGet(index, orderService.updateOrder(request), Math::max);
+                        } catch (RuntimeException e) {
+                            failures.incrementAndGet();
+                        }
+                        latencies[i] = System.nanoTime() - begin;
+                    }
+                });
+            }
+            started = System.nanoTime();
+            start.countDown();
+        }
+        var elapsed = System.nanoTime() - started;
+
+        results.add(Result.of("update " + threads + " threads", latencies, elapsed, failures.get()));
+        jdbcTemplate.update("DELETE FROM orders WHERE id = ANY(?)", (Object) orders.stream().map(Order::getId).toArray(Integer[]::new));
+    }
+
+    // The same orders in a transaction each vs all in one transaction, sent in JDBC batches
+    private void bulkInserts() {
+        var requests = IntStream.range(0, BULK_ORDERS)
+            .mapToObj(i -> new PlaceOrderRequest(OrderDataGenerator.phone(i + 1), "Bench", "Inserts", "Calle Mayor 1, 1", "5"))
+            .toList();
+
+        measure("place " + BULK_ORDERS + " one by one", 1, BULK_ROUNDS, () -> requests.forEach(orderService::placeOrder));
+        measure("place " + BULK_ORDERS + " in a batch", 1, BULK_ROUNDS, () -> orderService.placeOrders(requests));
+        jdbcTemplate.update("DELETE FROM orders WHERE customer_first_name = 'Bench' AND customer_last_name = 'Inserts'");
+    }
+
+    private void measure(String name, Runnable operation) {
+        measure(name, warmup, samples, operation);
+    }
+
+    private void measure(String name, int warmup, int samples, Runnable operation) {
+        for (int i = 0; i < warmup; i++) {
+            operation.run();
+        }
+
+        var latencies = new long[samples];
+        var cpuStarted = THREADS.getCurrentThreadCpuTime();
+        var started = System.nanoTime();
+        for (int i = 0; i < samples; i++) {
+            var begin = System.nanoTime();
+            operation.run();
+            latencies[i] = System.nanoTime() - begin;
+        }
+        var elapsed = System.nanoTime() - started;
+        // Operations run on this thread, so its CPU time is what the application spends on them besides the database
+        var cpuPerOperation = (THREADS.getCurrentThreadCpuTime() - cpuStarted) / samples;
+        results.add(Result.of(name, latencies, elapsed, 0).withCpu(cpuPerOperation));
+        System.out.println(results.getLast().csv());
+    }
+
+    private void report(Path directory) throws IOException {
+        var orderCount = jdbcTemplate.queryForObject("SELECT count(*) FROM orders", Long.class);
+        var serverVersion = jdbcTemplate.queryForObject("SHOW server_version", String.class);
+        var timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Files.createDirectories(directory);
+
+        var csv = new StringBuilder(Result.CSV_HEADER).append('\n');
+        results.forEach(result -> csv.append(result.csv()).append('\n'));
+        Files.writeString(directory.resolve("report-" + timestamp + ".csv"), csv);
+
+        var markdown = new StringBuilder()
+            .append("# Database benchmark ").append(timestamp).append("\n\n")
+            .append("- Orders: ").append(orderCount).append('\n')
+            .append("- PostgreSQL: ").append(serverVersion).append(", ").append(dbLatency.toMillis()).append(" ms away\n")
+            .append("- Samples: ").append(samples).append(", warmup: ").append(warmup)
+            .append(", update threads: ").append(threads).append("\n\n")
+            .append("| Scenario | p50, ms | p99, ms | max, ms | ops/s | failures | CPU, µs/op |\n")
+            .append("|---|---:|---:|---:|---:|---:|---:|\n");
+        results.forEach(result -> markdown.append(result.markdown()).append('\n'));
+        var markdownFile = directory.resolve("report-" + timestamp + ".md");
+        Files.writeString(markdownFile, markdown);
+
+        System.out.println(markdown);
+        System.out.println("Report is saved to " + markdownFile);
+    }
+
+    private record Result(
+        String scenario,
+        int samples,
+        double p50Millis,
+        double p99Millis,
+        double maxMillis,
+        double opsPerSecond,
+        int failures,
+        // Not measured for concurrent operations
+        Double cpuMicros
+    ) {
+        static final String CSV_HEADER = "scenario,samples,p50_ms,p99_ms,max_ms,ops_per_s,failures,cpu_us_per_op";
+
+        static Result of(String scenario, long[] latencies, long elapsedNanos, int failures) {
+            var sorted = latencies.clone();
+            Arrays.sort(sorted);
+            return new Result(
+                scenario,
+                sorted.length,
+                millis(percentile(sorted, 0.50)),
+                millis(percentile(sorted, 0.99)),
+                millis(sorted[sorted.length - 1]),
+                sorted.length / (elapsedNanos / 1e9),
+                failures,
+                null
+            );
+        }
+
+        Result withCpu(long cpuNanos) {
+            return new Result(scenario, samples, p50Millis, p99Millis, maxMillis, opsPerSecond, failures, cpuNanos / 1e3);
+        }
+
+        // Nearest-rank percentile
+        private static long percentile(long[] sorted, double percentile) {
+            var rank = (int) Math.ceil(percentile * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+
+        String csv() {
+            return String.format(Locale.ROOT, "%s,%d,%.3f,%.3f,%.3f,%.1f,%d,%s", scenario, samples, p50Millis, p99Millis, maxMillis, opsPerSecond, failures, cpu());
+        }
+
+        String markdown() {
+            return String.format(Locale.ROOT, "| %s | %.3f | %.3f | %.3f | %.1f | %d | %s |", scenario, p50Millis, p99Millis, maxMillis, opsPerSecond, failures, cpu());
+        }
+
+        private String cpu() {
+            return cpuMicros == null ? "" : String.format(Locale.ROOT, "%.1f", cpuMicros);
+        }
+    }
+}
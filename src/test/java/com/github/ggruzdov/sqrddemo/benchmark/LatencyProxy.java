@@ -0,0 +1,117 @@
+package com.github.ggruzdov.sqrddemo.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * TCP proxy delaying everything it forwards, to put the database a network hop away from the application.
+ * Every chunk is held for the delay in each direction, so a round trip takes twice the delay longer, while
+ * pipelined chunks overlap their delays the way they would on a real link.
+ */
+final class LatencyProxy implements AutoCloseable {
+
+    private static final int CHUNK_BYTES = 64 * 1024;
+    private static final Thread.Builder THREADS = Thread.ofPlatform().name("latency-proxy-", 0).daemon();
+
+    private final ServerSocket serverSocket;
+    private final InetSocketAddress target;
+    private final long delayNanos;
+
+    LatencyProxy(InetSocketAddress target, Duration delay) throws IOException {
+        this.serverSocket = new ServerSocket(0);
+        this.target = target;
+        this.delayNanos = delay.toNanos();
+        Thread.ofPlatform().name("latency-proxy").daemon().start(this::accept);
+    }
+
+    int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                var client = serverSocket.accept();
+                var server = new Socket(target.getHostString(), target.getPort());
+                client.setTcpNoDelay(true);
+                server.setTcpNoDelay(true);
+                forward(client, server);
+                forward(server, client);
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.err.println("Latency proxy failed to connect: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void forward(Socket from, Socket to) throws IOException {
+        var chunks = new LinkedBlockingQueue<Chunk>();
+        var in = from.getInputStream();
+        var out = to.getOutputStream();
+        // Platform threads, so that the proxy keeps forwarding while the virtual threads of the application are pinned
+        THREADS.start(() -> read(in, chunks));
+        THREADS.start(() -> write(out, chunks, from, to));
+    }
+
+    private void read(InputStream in, BlockingQueue<Chunk> chunks) {
+        var buffer = new byte[CHUNK_BYTES];
+        try {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                chunks.add(new Chunk(System.nanoTime() + delayNanos, Arrays.copyOf(buffer, read)));
+            }
+        } catch (IOException e) {
+            // Closed by the other direction
+        }
+        chunks.add(Chunk.END);
+    }
+
+    private void write(OutputStream out, BlockingQueue<Chunk> chunks, Socket from, Socket to) {
+        try {
+            while (true) {
+                var chunk = chunks.take();
+                if (chunk == Chunk.END) {
+                    break;
+                }
+                long wait;
+                while ((wait = chunk.due() - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                out.write(chunk.bytes());
+                out.flush();
+            }
+        } catch (IOException | InterruptedException e) {
+            // The connection is gone, the sockets are closed below
+        }
+        close(from);
+        close(to);
+    }
+
+    private static void close(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private record Chunk(long due, byte[] bytes) {
+
+        static final Chunk END = new Chunk(0, new byte[0]);
+    }
+}
@@ -0,0 +1,425 @@
+package com.github.ggruzdov.sqrddemo.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SequencedMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * Drives the HTTP API of a running application with a mix of requests at a fixed total rate. Every virtual user
+ * is a virtual thread sending its requests on a fixed schedule, one at a time. Latency is measured from the time
+ * a request was due rather than when it was actually sent, so a stalled server is charged for the requests
+ * that queued up behind it (coordinated omission correction). The uncorrected p99 is reported alongside.
+ * <p>
+ * Run with {@code -Dbenchmark.main=com.github.ggruzdov.sqrddemo.benchmark.LoadGenerator
+ * -Dbenchmark.args="rate=200 users=50 duration=60s"}, all options:
+ * <ul>
+ *     <li>{@code url} of the application, {@code http://localhost:8080} by default</li>
+ *     <li>{@code rate} total requests per second, {@code users} virtual users sharing it</li>
+ *     <li>{@code warmup} and {@code duration}, e.g. {@code 10s} and {@code 60s}, only the latter is reported</li>
+ *     <li>{@code mix} relative weights, {@code place=30,update=25,expired=5,login=5,search=35} by default</li>
+ *     <li>{@code lifetime} the order update lifetime of the application, {@code 5m} by default</li>
+ * </ul>
+ * Updates outside the window need orders older than the lifetime, e.g. loaded by {@link OrderDataGenerator}.
+ * The report is saved to {@code target/load-test} with full percentile distributions of every operation.
+ */
+public class LoadGenerator {
+
+    private static final String[][] CUSTOMERS = {
+        {"5551234567", "password123"},
+        {"5552223333", "mike1234"},
+        {"5559876543", "securePass"}
+    };
+    private static final String[] SEARCH_NAMES = {"ar", "son", "ez", "Mik", "Smi", "Garc"};
+    private static final long HIGHEST_MICROS = Duration.ofMinutes(10).toNanos() / 1000;
+    private static final Duration PROGRESS_INTERVAL = Duration.ofSeconds(5);
+
+    enum Operation {
+        PLACE(200),
+        UPDATE(200),
+        // Outside the update window, the application has to reject it
+        EXPIRED(400),
+        LOGIN(200),
+        SEARCH(200);
+
+        private final int expectedStatus;
+
+        Operation(int expectedStatus) {
+            this.expectedStatus = expectedStatus;
+        }
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder()
+        .executor(Executors.newVirtualThreadPerTaskExecutor())
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+
+    private final URI baseUri;
+    private final int rate;
+    private final int users;
+    private final Duration warmup;
+    private final Duration duration;
+    private final Duration lifetime;
+    private final Map<Operation, Integer> mix;
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+    private List<OrderVersion> expiredOrders = List.of();
+
+    LoadGenerator(Map<String, String> options) {
+        this.baseUri = URI.create(options.getOrDefault("url", "http://localhost:8080"));
+        this.rate = Integer.parseInt(options.getOrDefault("rate", "200"));
+        this.users = Integer.parseInt(options.getOrDefault("users", "50"));
+        this.warmup = duration(options.getOrDefault("warmup", "10s"));
+        this.duration = duration(options.getOrDefault("duration", "60s"));
+        this.lifetime = duration(options.getOrDefault("lifetime", "5m"));
+        this.mix = mix(options.getOrDefault("mix", "place=30,update=25,expired=5,login=5,search=35"));
+        for (var operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        var options = new HashMap<String, String>();
+        for (var arg : args) {
+            var parts = arg.split("=", 2);
+            options.put(parts[0], parts[1]);
+        }
+
+        var generator = new LoadGenerator(options);
+        generator.run();
+        generator.report(Path.of(options.getOrDefault("report", "target/load-test")));
+    }
+
+    void run() throws Exception {
+        var virtualUsers = new ArrayList<VirtualUser>();
+        for (int i = 0; i < users; i++) {
+            var customer = CUSTOMERS[i % CUSTOMERS.length];
+            var user = new VirtualUser(customer[0], customer[1]);
+            send(user, Operation.LOGIN);
+            virtualUsers.add(user);
+        }
+        if (mix.getOrDefault(Operation.EXPIRED, 0) > 0) {
+            expiredOrders = findExpiredOrders(virtualUsers.getFirst());
+            if (expiredOrders.isEmpty()) {
+                System.out.println("No orders older than " + lifetime + " found, updates outside the window are skipped");
+                mix.remove(Operation.EXPIRED);
+            }
+        }
+
+        var interval = Duration.ofSeconds(users).toNanos() / rate;
+        var start = System.nanoTime();
+        var measureFrom = start + warmup.toNanos();
+        var end = measureFrom + duration.toNanos();
+        System.out.printf("%d users, %d requests/s, warmup %s, duration %s%n", users, rate, warmup, duration);
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < virtualUsers.size(); i++) {
+                var user = virtualUsers.get(i);
+                // Spread the users over the interval, so that they don't fire at the same instant
+                var firstDue = start + interval * i / users;
+                executor.execute(() -> user.loop(firstDue, interval, measureFrom, end));
+            }
+            reportProgress(start, measureFrom, end);
+        }
+        // Requests completed after the last progress line
+        stats.values().forEach(Stats::drain);
+    }
+
+    private void reportProgress(long start, long measureFrom, long end) {
+        while (System.nanoTime() < end) {
+            LockSupport.parkNanos(PROGRESS_INTERVAL.toNanos());
+            var line = new StringBuilder(String.format("%4ds", Duration.ofNanos(System.nanoTime() - start).toSeconds()));
+            if (System.nanoTime() < measureFrom) {
+                System.out.println(line.append("  warmup"));
+                continue;
+            }
+            for (var entry : stats.entrySet()) {
+                var interval = entry.getValue().drain();
+                if (interval.getTotalCount() > 0) {
+                    line.append(String.format(Locale.ROOT, "  %s %d req p99 %.1f ms",
+                        entry.getKey().name().toLowerCase(), interval.getTotalCount(), interval.getValueAtPercentile(99) / 1000.0));
+                }
+            }
+            System.out.println(line);
+        }
+    }
+
+    private List<OrderVersion> findExpiredOrders(VirtualUser user) throws IOException, InterruptedException {
+        var expiredBefore = Instant.now().minus(lifetime).minusSeconds(60);
+        var orders = new ArrayList<OrderVersion>();
+        String after = null;
+        // Newest first, so the pages are walked until older orders come up
+        for (int page = 0; page < 50 && orders.size() < 100; page++) {
+            var path = "/orders/search/cursor?cursor.limit=1000" + (after != null ? "&cursor.after=" + after : "");
+            var response = client.send(user.request(path).GET().build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                break;
+            }
+            var body = objectMapper.readTree(response.body());
+            for (var order : body.get("content")) {
+                if (Instant.parse(order.get("createdAt").asText()).isBefore(expiredBefore) && orders.size() < 100) {
+                    orders.add(new OrderVersion(order.get("id").asInt(), order.get("version").asInt()));
+                }
+            }
+            if (body.get("next").isNull()) {
+                break;
+            }
+            after = body.get("next").asText();
+        }
+        return orders;
+    }
+
+    private int send(VirtualUser user, Operation operation) throws IOException, InterruptedException {
+        var random = ThreadLocalRandom.current();
+        var pilotes = 5 * (1 + random.nextInt(3));
+        var updated = switch (operation) {
+            case UPDATE -> user.recentOrder();
+            case EXPIRED -> expiredOrders.get(random.nextInt(expiredOrders.size()));
+            default -> null;
+        };
+        var request = switch (operation) {
+            case PLACE -> user.request("/orders").POST(json("""
+                {"firstName": "Load", "lastName": "Generator", "phone": "%s", "deliveryAddress": "Calle Mayor 1, 1", "pilotes": %d}
+                """.formatted(user.phone, pilotes)));
+            case UPDATE, EXPIRED -> user.request("/orders").PUT(json("""
+                {"id": %d, "firstName": "Load", "lastName": "Generator", "phone": "%s", "deliveryAddress": "Calle Mayor 2, 2", "pilotes": %d, "version": %d}
+                """.formatted(updated.id(), user.phone, pilotes, updated.version())));
+            case LOGIN -> user.request("/auth/login").POST(json("""
+                {"phone": "%s", "password": "%s"}
+                """.formatted(user.phone, user.password)));
+            case SEARCH -> user.request("/orders/search?lastName=" + SEARCH_NAMES[random.nextInt(SEARCH_NAMES.length)]).GET();
+        };
+
+        var response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        // Logging in again within a live session keeps the cookie, the response has none then
+        var cookies = response.headers().allValues("Set-Cookie");
+        if (operation == Operation.LOGIN && response.statusCode() == 200 && !cookies.isEmpty()) {
+            user.cookie = cookies.stream()
+                .map(cookie -> cookie.split(";", 2)[0])
+                .collect(Collectors.joining("; "));
+        }
+        if (operation == Operation.PLACE && response.statusCode() == 200) {
+            user.placed(objectMapper.readTree(response.body()).get("id").asInt());
+        }
+        if (operation == Operation.UPDATE && response.statusCode() == 200) {
+            user.updated(updated.id(), objectMapper.readTree(response.body()).get("version").asInt());
+        }
+        return response.statusCode();
+    }
+
+    private Operation pick(VirtualUser user) {
+        var total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        var point = ThreadLocalRandom.current().nextInt(total);
+        for (var entry : mix.entrySet()) {
+            point -= entry.getValue();
+            if (point < 0) {
+                // Nothing to update before the user placed an order
+                return entry.getKey() == Operation.UPDATE && !user.hasOrders() ? Operation.PLACE : entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Empty mix");
+    }
+
+    Path report(Path directory) throws IOException {
+        var timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        var runDirectory = directory.resolve(timestamp);
+        Files.createDirectories(runDirectory);
+
+        var seconds = duration.toNanos() / 1e9;
+        var summary = new StringBuilder()
+            .append("# Load test ").append(timestamp).append("\n\n")
+            .append("- URL: ").append(baseUri).append('\n')
+            .append("- Target rate: ").append(rate).append(" requests/s, users: ").append(users)
+            .append(", duration: ").append(duration).append(", warmup: ").append(warmup).append('\n')
+            .append("- Mix: ").append(mix).append("\n")
+            // Below the target the server couldn't keep up, the corrected latency tells by how much
+            .append("- Achieved rate: ").append(String.format(Locale.ROOT, "%.1f", stats.values().stream()
+                .mapToLong(operationStats -> operationStats.corrected.getTotalCount()).sum() / seconds)).append(" requests/s\n\n")
+            .append("Latency in ms, corrected for coordinated omission unless noted\n\n")
+            .append("| Operation | requests | statuses | req/s | p50 | p90 | p99 | p99.9 | max | p99 uncorrected |\n")
+            .append("|---|---:|---|---:|---:|---:|---:|---:|---:|---:|\n");
+        for (var entry : stats.entrySet()) {
+            var operationStats = entry.getValue();
+            var corrected = operationStats.corrected;
+            if (corrected.getTotalCount() == 0) {
+                continue;
+            }
+            summary.append(String.format(Locale.ROOT, "| %s | %d | %s | %.1f | %.2f | %.2f | %.2f | %.2f | %.2f | %.2f |%n",
+                entry.getKey().name().toLowerCase(),
+                corrected.getTotalCount(),
+                statuses(entry.getKey(), operationStats),
+                corrected.getTotalCount() / seconds,
+                corrected.getValueAtPercentile(50) / 1000.0,
+                corrected.getValueAtPercentile(90) / 1000.0,
+                corrected.getValueAtPercentile(99) / 1000.0,
+                corrected.getValueAtPercentile(99.9) / 1000.0,
+                corrected.getMaxValue() / 1000.0,
+                operationStats.uncorrected.getValueAtPercentile(99) / 1000.0));
+
+            try (var out = new PrintStream(runDirectory.resolve(entry.getKey().name().toLowerCase() + ".hgrm").toFile())) {
+                corrected.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        Files.writeString(runDirectory.resolve("summary.md"), summary);
+
+        System.out.println(summary);
+        System.out.println("Report is saved to " + runDirectory);
+        return runDirectory;
+    }
+
+    // Unexpected statuses are marked, e.g. "200: 95, **503**: 5"
+    private static String statuses(Operation operation, Stats operationStats) {
+        return operationStats.statuses.entrySet()
+            .stream()
+            .map(status -> (status.getKey() == operation.expectedStatus ? status.getKey() : "**" + status.getKey() + "**")
+                + ": " + status.getValue().get())
+            .collect(Collectors.joining(", "));
+    }
+
+    private static HttpRequest.BodyPublisher json(String body) {
+        return HttpRequest.BodyPublishers.ofString(body);
+    }
+
+    private static Duration duration(String value) {
+        return Duration.parse("PT" + value.toUpperCase());
+    }
+
+    private static Map<Operation, Integer> mix(String value) {
+        var mix = new EnumMap<Operation, Integer>(Operation.class);
+        for (var part : value.split(",")) {
+            var weight = part.split("=", 2);
+            mix.put(Operation.valueOf(weight[0].trim().toUpperCase()), Integer.parseInt(weight[1].trim()));
+        }
+        return mix;
+    }
+
+    private class VirtualUser {
+
+        private final String phone;
+        private final String password;
+        // The version last seen of every recent order, the oldest first
+        private final SequencedMap<Integer, Integer> recentOrders = new LinkedHashMap<>();
+        private String cookie;
+
+        VirtualUser(String phone, String password) {
+            this.phone = phone;
+            this.password = password;
+        }
+
+        void loop(long firstDue, long interval, long measureFrom, long end) {
+            // Requests falling behind the schedule are sent back to back, but not after the end
+            for (var due = firstDue; due < end && System.nanoTime() < end; due += interval) {
+                var wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+
+                var operation = pick(this);
+                var sent = System.nanoTime();
+                int status;
+                try {
+                    status = send(this, operation);
+                } catch (IOException e) {
+                    status = -1;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                var done = System.nanoTime();
+
+                if (due >= measureFrom) {
+                    stats.get(operation).record(done - due, done - sent, status);
+                }
+            }
+        }
+
+        HttpRequest.Builder request(String path) {
+            var builder = HttpRequest.newBuilder(baseUri.resolve(path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json");
+            if (cookie != null) {
+                builder.header("Cookie", cookie);
+            }
+            return builder;
+        }
+
+        boolean hasOrders() {
+            return !recentOrders.isEmpty();
+        }
+
+        OrderVersion recentOrder() {
+            return recentOrders.entrySet()
+                .stream()
+                .skip(ThreadLocalRandom.current().nextInt(recentOrders.size()))
+                .map(order -> new OrderVersion(order.getKey(), order.getValue()))
+                .findFirst()
+                .orElseThrow();
+        }
+
+        void placed(int id) {
+            recentOrders.put(id, 1);
+            if (recentOrders.size() > 10) {
+                recentOrders.pollFirstEntry();
+            }
+        }
+
+        void updated(int id, int version) {
+            recentOrders.replace(id, version);
+        }
+    }
+
+    private record OrderVersion(int id, int version) {
+    }
+
+    private static class Stats {
+
+        private final Recorder correctedRecorder = new Recorder(HIGHEST_MICROS, 3);
+        private final Recorder uncorrectedRecorder = new Recorder(HIGHEST_MICROS, 3);
+        private final Histogram corrected = new Histogram(HIGHEST_MICROS, 3);
+        private final Histogram uncorrected = new Histogram(HIGHEST_MICROS, 3);
+        // -1 stands for requests failed without a response, e.g. timed out
+        private final Map<Integer, AtomicLong> statuses = new ConcurrentSkipListMap<>();
+
+        void record(long correctedNanos, long uncorrectedNanos, int status) {
+            correctedRecorder.recordValue(Math.min(HIGHEST_MICROS, correctedNanos / 1000));
+            uncorrectedRecorder.recordValue(Math.min(HIGHEST_MICROS, uncorrectedNanos / 1000));
+            statuses.computeIfAbsent(status, key -> new AtomicLong()).incrementAndGet();
+        }
+
+        /**
+         * Latencies recorded since the previous call, they are added to the totals as well.
+         */
+        Histogram drain() {
+            var interval = correctedRecorder.getIntervalHistogram();
+            corrected.add(interval);
+            uncorrected.add(uncorrectedRecorder.getIntervalHistogram());
+            return interval;
+        }
+    }
+}
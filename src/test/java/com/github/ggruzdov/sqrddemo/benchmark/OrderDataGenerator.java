@@ -0,0 +1,172 @@
+package com.github.ggruzdov.sqrddemo.benchmark;
+
+import com.github.ggruzdov.sqrddemo.config.AppProperties;
+import com.github.ggruzdov.sqrddemo.service.OrderPartitionMaintenance;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Bulk-loads synthetic orders with {@code COPY}, for benchmarks to run against a realistic amount of data.
+ * A tenth as many customers as orders place them, a few customers and names are much more frequent than
+ * the rest (Zipf), and orders are spread over the last year. The data only depends on the order count and
+ * the seed, so runs with the same arguments are comparable.
+ * <p>
+ * Run with {@code -Dbenchmark.main=com.github.ggruzdov.sqrddemo.benchmark.OrderDataGenerator
+ * -Dbenchmark.args="1000000 --truncate"}, without {@code --truncate} the orders are added to the existing ones.
+ */
+public class OrderDataGenerator {
+
+    static final String[] FIRST_NAMES = {
+        "Maria", "James", "Anna", "John", "Elena", "Michael", "Sofia", "David", "Laura", "Robert",
+        "Julia", "Daniel", "Emma", "Carlos", "Olivia", "Thomas", "Lucia", "Pablo", "Marta", "Javier",
+        "Irene", "Sergio", "Clara", "Miguel", "Paula", "Andrew", "Alba", "Hugo", "Nora", "Adrian",
+        "Sara", "Victor", "Eva", "Ivan", "Lola", "Oscar", "Vera", "Ruben", "Ines", "Mateo"
+    };
+
+    static final String[] LAST_NAMES = {
+        "Garcia", "Smith", "Martinez", "Johnson", "Lopez", "Williams", "Sanchez", "Brown", "Perez", "Jones",
+        "Gonzalez", "Miller", "Rodriguez", "Davis", "Fernandez", "Wilson", "Gomez", "Anderson", "Diaz", "Taylor",
+        "Moreno", "Thomas", "Alvarez", "Moore", "Romero", "Jackson", "Navarro", "Martin", "Torres", "Thompson",
+        "Dominguez", "White", "Vazquez", "Harris", "Ramos", "Clark", "Gil", "Lewis", "Serrano", "Robinson"
+    };
+
+    // Doesn't clash with the phones of the seed customers
+    private static final long PHONE_BASE = 6_000_000_000L;
+    private static final double CUSTOMER_SKEW = 1.1;
+    private static final double NAME_SKEW = 1.0;
+    private static final Duration SPREAD = Duration.ofDays(365);
+    private static final int CHUNK_BYTES = 1 << 20;
+    // Increment of orders_seq, each nextval reserves as many ids for Hibernate's pooled optimizer
+    private static final int ID_BLOCK = 50;
+
+    static final long DEFAULT_SEED = 42;
+
+    private static final String COPY = """
+        COPY orders (id, version, customer_first_name, customer_last_name, customer_phone, delivery_address,
+                     pilotes, total_price, created_at, updated_at)
+        FROM STDIN WITH (FORMAT csv)
+        """;
+
+    public static void main(String[] args) throws Exception {
+        var orderCount = args.length > 0 ? Long.parseLong(args[0].replace("_", "")) : 1_000_000;
+        var truncate = args.length > 1 && "--truncate".equals(args[1]);
+
+        try (var context = BenchmarkApplication.start(Map.of())) {
+            var dataSource = context.getBean(DataSource.class);
+            var pilotesPrice = context.getBean(AppProperties.class).getPilotesPriceInCents();
+            var jdbcTemplate = new JdbcTemplate(dataSource);
+
+            if (truncate) {
+                jdbcTemplate.execute("TRUNCATE orders RESTART IDENTITY");
+            }
+            var firstId = reserveIds(jdbcTemplate, orderCount);
+            // Orders go as far back as the spread, the maintenance only creates the upcoming months
+            context.getBean(OrderPartitionMaintenance.class).createPartitions(
+                YearMonth.from(Instant.now().minus(SPREAD).atZone(ZoneOffset.UTC)),
+                YearMonth.now(ZoneOffset.UTC)
+            );
+
+            // Synthetic orders are no news for the live order feed, and announcing them would only flood its queue
+            jdbcTemplate.execute("ALTER TABLE orders DISABLE TRIGGER trg_orders_notify_created");
+            var started = System.nanoTime();
+            try {
+                copy(dataSource, firstId, orderCount, DEFAULT_SEED, pilotesPrice);
+            } finally {
+                jdbcTemplate.execute("ALTER TABLE orders ENABLE TRIGGER trg_orders_notify_created");
+            }
+            System.out.printf("Copied %d orders in %d s%n", orderCount, Duration.ofNanos(System.nanoTime() - started).toSeconds());
+
+            // Fresh statistics, otherwise the planner would go on with the ones of the table before the load
+            jdbcTemplate.execute("ANALYZE orders");
+        }
+    }
+
+    static int customerCount(long orderCount) {
+        return (int) Math.max(100, orderCount / 10);
+    }
+
+    /**
+     * The phone of the customer of the given Zipf rank, rank 1 places the most orders.
+     */
+    static String phone(int customer) {
+        return String.valueOf(PHONE_BASE + customer);
+    }
+
+    /**
+     * Moves orders_seq past as many blocks as the orders need, the ids between the last taken block and the new value
+     * are then handed out by nobody else. Fails once the ids run past the INTEGER range of the sequence. A nextval
+     * of the running application between the nextval and the setval would take a block out of the reserved ids,
+     * so load the data while the application is idle.
+     */
+    private static long reserveIds(JdbcTemplate jdbcTemplate, long orderCount) {
+        var blocks = (orderCount + ID_BLOCK - 1) / ID_BLOCK;
+        var last = jdbcTemplate.queryForObject(
+            "SELECT setval('orders_seq', nextval('orders_seq') + ? * ?)", Long.class, ID_BLOCK, blocks
+        );
+        return last - blocks * ID_BLOCK + 1;
+    }
+
+    private static void copy(DataSource dataSource, long firstId, long orderCount, long seed, int pilotesPrice) throws SQLException {
+        var random = new SplittableRandom(seed);
+        var customers = new ZipfSampler(customerCount(orderCount), CUSTOMER_SKEW);
+        var firstNames = new ZipfSampler(FIRST_NAMES.length, NAME_SKEW);
+        var lastNames = new ZipfSampler(LAST_NAMES.length, NAME_SKEW);
+        var newest = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        var spreadMillis = SPREAD.toMillis();
+
+        try (var connection = dataSource.getConnection()) {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY);
+            try {
+                var chunk = new StringBuilder(CHUNK_BYTES + 512);
+                for (long i = 0; i < orderCount; i++) {
+                    var customer = customers.sample(random);
+                    // A customer keeps the same name across orders
+                    var customerRandom = new SplittableRandom(seed ^ customer * 0x9E3779B97F4A7C15L);
+                    var pilotes = 5 * (1 + random.nextInt(3));
+                    var createdAt = newest.minusMillis(random.nextLong(spreadMillis));
+
+                    chunk.append(firstId + i).append(",1,")
+                        .append(FIRST_NAMES[firstNames.sample(customerRandom) - 1]).append(',')
+                        .append(LAST_NAMES[lastNames.sample(customerRandom) - 1]).append(',')
+                        .append(phone(customer)).append(',')
+                        .append("\"Calle Mayor ").append(customer % 300 + 1).append(", ").append(customer % 7 + 1).append("\",")
+                        .append(pilotes).append(',')
+                        .append(pilotes * pilotesPrice).append(',')
+                        .append(createdAt).append(',')
+                        .append(createdAt).append('\n');
+
+                    if (chunk.length() >= CHUNK_BYTES) {
+                        write(copyIn, chunk);
+                    }
+                    if ((i + 1) % 1_000_000 == 0) {
+                        System.out.printf("%d orders copied%n", i + 1);
+                    }
+                }
+                write(copyIn, chunk);
+                copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        }
+    }
+
+    private static void write(CopyIn copyIn, StringBuilder chunk) throws SQLException {
+        var bytes = chunk.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        chunk.setLength(0);
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.ggruzdov.sqrddemo.benchmark;
+
+import com.github.ggruzdov.sqrddemo.config.SearchCacheProperties;
+import com.github.ggruzdov.sqrddemo.request.CountMode;
+import com.github.ggruzdov.sqrddemo.request.SearchOrderRequest;
+import com.github.ggruzdov.sqrddemo.response.SearchOrderResponse;
+import com.github.ggruzdov.sqrddemo.response.SearchPage;
+import com.github.ggruzdov.sqrddemo.service.OrderSearchCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The search cache filled to its default size, 900 results filtered by phone and 100 by name, under writes of single
+ * phones: a write followed by the searches it invalidated, and a cached search on its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderSearchCacheBenchmark {
+
+    private static final int PHONES = 900;
+    private static final int NAMES = 100;
+    private static final SearchPage<SearchOrderResponse> PAGE = SearchPage.of(new SliceImpl<>(List.of(), PageRequest.of(0, 10), false));
+
+    private OrderSearchCache cache;
+    private SearchOrderRequest[] byPhone;
+    private SearchOrderRequest[] byName;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        var properties = new SearchCacheProperties();
+        properties.setEnabled(true);
+        properties.setMaximumSize((long) (PHONES + NAMES));
+        properties.setTtl(Duration.ofHours(1));
+        cache = new OrderSearchCache(properties, new SimpleMeterRegistry());
+
+        byPhone = new SearchOrderRequest[PHONES];
+        for (int i = 0; i < PHONES; i++) {
+            byPhone[i] = new SearchOrderRequest(OrderDataGenerator.phone(i + 1), null, null, null, null, null, null, null);
+            cache.get(byPhone[i], CountMode.EXACT, () -> PAGE);
+        }
+        byName = new SearchOrderRequest[NAMES];
+        for (int i = 0; i < NAMES; i++) {
+            byName[i] = new SearchOrderRequest(null, null, "Name" + i, null, null, null, null, null);
+            cache.get(byName[i], CountMode.EXACT, () -> PAGE);
+        }
+    }
+
+    @Benchmark
+    public SearchPage<SearchOrderResponse> writeThenSearch() {
+        var i = next++;
+        var phoneSearch = byPhone[i % PHONES];
+        cache.invalidate(Set.of(phoneSearch.phone()));
+        cache.get(phoneSearch, CountMode.EXACT, () -> PAGE);
+        return cache.get(byName[i % NAMES], CountMode.EXACT, () -> PAGE);
+    }
+
+    @Benchmark
+    public SearchPage<SearchOrderResponse> cachedSearch() {
+        return cache.get(byPhone[next++ % PHONES], CountMode.EXACT, () -> PAGE);
+    }
+}
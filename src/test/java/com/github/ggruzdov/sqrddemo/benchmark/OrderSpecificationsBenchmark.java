@@ -0,0 +1,80 @@
+package com.github.ggruzdov.sqrddemo.benchmark;
+
+import com.github.ggruzdov.sqrddemo.model.Order;
+import com.github.ggruzdov.sqrddemo.repository.OrderSearchQueries;
+import com.github.ggruzdov.sqrddemo.repository.OrderSpecifications;
+import com.github.ggruzdov.sqrddemo.request.SearchOrderRequest;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the search specification and turning it into a Hibernate query vs binding the parameters of the query
+ * prepared for the filter combination, what {@code searchOrders} does before anything is sent to the database.
+ * Hibernate is bootstrapped without a connection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderSpecificationsBenchmark {
+
+    private final SearchOrderRequest request = new SearchOrderRequest("5552223333", "Mi", "John", null, null, null, null, null);
+
+    private SessionFactory sessionFactory;
+    private EntityManager entityManager;
+
+    @Setup
+    public void setUp() {
+        sessionFactory = new Configuration()
+            .addAnnotatedClass(Order.class)
+            .setProperty("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect")
+            .setProperty("hibernate.boot.allow_jdbc_metadata_access", "false")
+            .buildSessionFactory();
+        entityManager = sessionFactory.createEntityManager();
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public Specification<Order> matching() {
+        return OrderSpecifications.matching(request);
+    }
+
+    @Benchmark
+    public TypedQuery<Order> criteriaQuery() {
+        var spec = OrderSpecifications.matching(request);
+        var cb = entityManager.getCriteriaBuilder();
+        var query = cb.createQuery(Order.class);
+        var root = query.from(Order.class);
+        query.where(spec.toPredicate(root, query, cb));
+        return entityManager.createQuery(query);
+    }
+
+    @Benchmark
+    public TypedQuery<Tuple> preparedQuery() {
+        return OrderSearchQueries.select(entityManager, request);
+    }
+}
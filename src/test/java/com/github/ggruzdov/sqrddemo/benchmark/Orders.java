@@ -0,0 +1,31 @@
+package com.github.ggruzdov.sqrddemo.benchmark;
+
+import com.github.ggruzdov.sqrddemo.model.Order;
+import com.github.ggruzdov.sqrddemo.request.PlaceOrderRequest;
+
+import java.time.Instant;
+
+final class Orders {
+
+    private Orders() {
+    }
+
+    static Order order(int id) {
+        return Order.builder()
+            .id(id)
+            .version(1)
+            .customerFirstName("Mike")
+            .customerLastName("Johnson")
+            .customerPhone("5552223333")
+            .deliveryAddress("5th Avenue, " + id)
+            .pilotes(10)
+            .totalPrice(1330)
+            .createdAt(Instant.parse("2025-04-01T12:00:00Z").plusSeconds(id))
+            .updatedAt(Instant.parse("2025-04-01T12:00:00Z").plusSeconds(id))
+            .build();
+    }
+
+    static PlaceOrderRequest placeOrderRequest() {
+        return new PlaceOrderRequest("5552223333", "Mike", "Johnson", "5th Avenue, 13", "10");
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.ggruzdov.sqrddemo.benchmark;
+
+import com.github.ggruzdov.sqrddemo.request.PlaceOrderRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bean validation of an order placement, as done for every order of {@code POST /orders} and {@code /orders/batch}.
+ * Invalid requests also pay for building the violation messages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlaceOrderRequestValidationBenchmark {
+
+    private Validator validator;
+    private PlaceOrderRequest validRequest;
+    private PlaceOrderRequest invalidRequest;
+
+    @Setup
+    public void setUp() {
+        validator = Validation.buildDefaultValidatorFactory().getValidator();
+        validRequest = Orders.placeOrderRequest();
+        invalidRequest = new PlaceOrderRequest("555", "Mike", "", "5th Avenue, 13", "7");
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<PlaceOrderRequest>> valid() {
+        return validator.validate(validRequest);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<PlaceOrderRequest>> invalid() {
+        return validator.validate(invalidRequest);
+    }
+}
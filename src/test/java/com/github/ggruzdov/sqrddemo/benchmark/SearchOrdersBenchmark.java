@@ -0,0 +1,96 @@
+package com.github.ggruzdov.sqrddemo.benchmark;
+
+import com.github.ggruzdov.sqrddemo.model.Order;
+import com.github.ggruzdov.sqrddemo.repository.OrderRepository;
+import com.github.ggruzdov.sqrddemo.repository.OrderSpecifications;
+import com.github.ggruzdov.sqrddemo.request.PlaceOrderRequest;
+import com.github.ggruzdov.sqrddemo.request.SearchOrderRequest;
+import com.github.ggruzdov.sqrddemo.response.SearchOrderResponse;
+import com.github.ggruzdov.sqrddemo.service.OrderService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Offset search of a 100-row page, loading entities and mapping them to responses vs selecting the response columns.
+ * Both run the page and the count query against the local database, see {@code compose-db.yml}, while the slice
+ * fetches a row more instead of counting.
+ * <p>
+ * Run with {@code -Dbenchmark.args="SearchOrdersBenchmark -prof gc"} to see allocations per search.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SearchOrdersBenchmark {
+
+    private static final String LAST_NAME = "Benchmarkson";
+    private static final int ORDER_COUNT = 1000;
+    private static final PageRequest PAGE = PageRequest.of(1, 100);
+
+    private ConfigurableApplicationContext context;
+    private OrderRepository orderRepository;
+    private List<Order> orders;
+    private SearchOrderRequest filter;
+    private Specification<Order> spec;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start(Map.of());
+        orderRepository = context.getBean(OrderRepository.class);
+
+        var requests = IntStream.range(0, ORDER_COUNT)
+            .mapToObj(i -> new PlaceOrderRequest(
+                String.format("%010d", i),
+                "Bench",
+                LAST_NAME,
+                "Benchmark Street, " + i,
+                "10"
+            ))
+            .toList();
+        orders = context.getBean(OrderService.class).placeOrders(requests);
+        filter = new SearchOrderRequest(null, null, LAST_NAME, null, null, null, null, null);
+        spec = OrderSpecifications.matching(filter);
+    }
+
+    @TearDown
+    public void tearDown() {
+        orderRepository.deleteAllInBatch(orders);
+        context.close();
+    }
+
+    @Benchmark
+    public Page<SearchOrderResponse> entities() {
+        return orderRepository.findAll(spec, PAGE).map(SearchOrderResponse::from);
+    }
+
+    @Benchmark
+    public Page<SearchOrderResponse> projection() {
+        return orderRepository.searchOrders(filter, PAGE);
+    }
+
+    @Benchmark
+    public Slice<SearchOrderResponse> slice() {
+        return orderRepository.searchOrderSlice(filter, PAGE);
+    }
+}
@@ -0,0 +1,84 @@
+package com.github.ggruzdov.sqrddemo.benchmark;
+
+import com.github.ggruzdov.sqrddemo.config.SessionProperties;
+import com.github.ggruzdov.sqrddemo.config.TokenSecurityContextRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of the security context repositories: loading the context of an authenticated request
+ * and saving it on login. The HttpSession lookup itself is an in-memory map access in Tomcat, so mock sessions
+ * give a fair picture of the repository overhead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SecurityContextRepositoryBenchmark {
+
+    @Param({"HTTP_SESSION", "TOKEN"})
+    private SessionProperties.Mode mode;
+
+    private SecurityContextRepository repository;
+    private SecurityContext context;
+    private MockHttpServletRequest authenticatedRequest;
+
+    @Setup
+    public void setUp() {
+        repository = switch (mode) {
+            case HTTP_SESSION -> new HttpSessionSecurityContextRepository();
+            case TOKEN -> new TokenSecurityContextRepository(Sessions.tokenProperties());
+        };
+        context = Sessions.authenticatedContext("5552223333");
+
+        var loginRequest = new MockHttpServletRequest();
+        var loginResponse = new MockHttpServletResponse();
+        repository.saveContext(context, loginRequest, loginResponse);
+
+        authenticatedRequest = new MockHttpServletRequest();
+        authenticatedRequest.setSession(loginRequest.getSession(false));
+        authenticatedRequest.setCookies(loginResponse.getCookies());
+    }
+
+    @Benchmark
+    public SecurityContext loadContext() {
+        return repository.loadDeferredContext(authenticatedRequest).get();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse saveContext() {
+        var request = new MockHttpServletRequest();
+        var response = new RawHeaderResponse();
+        repository.saveContext(context, request, response);
+        return response;
+    }
+
+    // The mock response parses Set-Cookie headers, which would cost more than issuing the token itself
+    private static class RawHeaderResponse extends MockHttpServletResponse {
+
+        private String header;
+
+        @Override
+        public void addHeader(String name, String value) {
+            this.header = value;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.ggruzdov.sqrddemo.benchmark;
+
+import com.github.ggruzdov.sqrddemo.config.TokenSecurityContextRepository;
+import org.apache.catalina.Session;
+import org.apache.catalina.core.StandardContext;
+import org.apache.catalina.session.StandardManager;
+import org.apache.catalina.util.StandardSessionIdGenerator;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+
+import java.util.ArrayList;
+
+/**
+ * Heap retained by logged-in customers in each session mode. HTTP sessions are real Tomcat sessions holding
+ * the security context saved by {@link HttpSessionSecurityContextRepository}, token mode keeps nothing on the server.
+ * <p>
+ * Run with {@code -Dbenchmark.main=com.github.ggruzdov.sqrddemo.benchmark.SessionHeapFootprint -Dbenchmark.args=100000}
+ */
+public class SessionHeapFootprint {
+
+    public static void main(String[] args) {
+        var sessionCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        var manager = new StandardManager();
+        manager.setContext(new StandardContext());
+        var idGenerator = new StandardSessionIdGenerator();
+        var repository = new HttpSessionSecurityContextRepository();
+
+        var heapBefore = usedHeap();
+        var sessions = new ArrayList<Session>(sessionCount);
+        for (int i = 0; i < sessionCount; i++) {
+            var session = manager.createEmptySession();
+            session.setNew(true);
+            session.setValid(true);
+            session.setCreationTime(System.currentTimeMillis());
+            session.setMaxInactiveInterval(1800);
+            session.setId(idGenerator.generateSessionId());
+
+            var request = new MockHttpServletRequest();
+            request.setSession(session.getSession());
+            repository.saveContext(Sessions.authenticatedContext(phone(i)), request, new MockHttpServletResponse());
+            sessions.add(session);
+        }
+        var heapAfter = usedHeap();
+
+        var sessionBytes = (heapAfter - heapBefore) / sessionCount;
+        System.out.printf("HTTP_SESSION: %d sessions retain %.1f MB, %d bytes per session%n",
+            sessions.size(), (heapAfter - heapBefore) / 1024.0 / 1024.0, sessionBytes);
+
+        var tokenResponse = new MockHttpServletResponse();
+        new TokenSecurityContextRepository(Sessions.tokenProperties())
+            .saveContext(Sessions.authenticatedContext(phone(0)), new MockHttpServletRequest(), tokenResponse);
+        System.out.printf("TOKEN: 0 bytes retained per session, %d bytes of cookie sent with each request%n",
+            tokenResponse.getCookies()[0].getValue().length());
+    }
+
+    private static String phone(int i) {
+        return String.format("%010d", i);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        var runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,34 @@
+package com.github.ggruzdov.sqrddemo.benchmark;
+
+import com.github.ggruzdov.sqrddemo.config.SessionProperties;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+
+import java.time.Duration;
+import java.util.List;
+
+final class Sessions {
+
+    private Sessions() {
+    }
+
+    static SessionProperties.Token tokenProperties() {
+        var token = new SessionProperties.Token();
+        token.setCookieName("SQRD_SESSION");
+        token.setSecret("0123456789abcdef0123456789abcdef");
+        token.setTtl(Duration.ofMinutes(30));
+        return token;
+    }
+
+    // Same shape as the context saved by AuthController, with the password erased after authentication
+    static SecurityContext authenticatedContext(String phone) {
+        var user = new User(phone, "erased", List.of());
+        user.eraseCredentials();
+
+        var context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(UsernamePasswordAuthenticationToken.authenticated(user, null, List.of()));
+        return context;
+    }
+}
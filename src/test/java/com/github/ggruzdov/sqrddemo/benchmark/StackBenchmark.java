@@ -0,0 +1,91 @@
+package com.github.ggruzdov.sqrddemo.benchmark;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Runs the {@link LoadGenerator} against the servlet stack, on platform and on virtual threads, and against the
+ * reactive stack, see {@code application-reactive.yml}, with the database behind a {@link LatencyProxy}. Every
+ * stack gets a fresh application with the same pool size, token sessions and no search cache, so that each
+ * search reaches the database. Only placing and searching orders is served by both stacks, the mix defaults
+ * to {@code place=50,search=50}.
+ * <p>
+ * Run with {@code -Dbenchmark.main=com.github.ggruzdov.sqrddemo.benchmark.StackBenchmark
+ * -Dbenchmark.args="rate=1000 users=400 duration=60s db-latency=5ms"}, {@code db-latency} is added to the database
+ * in each direction, {@code pool} sets the size of both the JDBC and the R2DBC pool, 10 by default, and
+ * {@code stacks=mvc,reactive} runs some of the stacks only. The other options are passed to the load generator.
+ * A report per stack is saved to {@code target/stacks}.
+ */
+public class StackBenchmark {
+
+    private static final String TOKEN_SECRET = "stack-benchmark-token-secret-0123456789";
+
+    enum Stack {
+        MVC(false, false),
+        MVC_VIRTUAL(false, true),
+        REACTIVE(true, false);
+
+        private final boolean reactive;
+        private final boolean virtualThreads;
+
+        Stack(boolean reactive, boolean virtualThreads) {
+            this.reactive = reactive;
+            this.virtualThreads = virtualThreads;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        var options = new HashMap<String, String>();
+        for (var arg : args) {
+            var parts = arg.split("=", 2);
+            options.put(parts[0], parts[1]);
+        }
+        var stacks = options.containsKey("stacks")
+            ? Arrays.stream(options.remove("stacks").split(",")).map(stack -> Stack.valueOf(stack.trim().toUpperCase(Locale.ROOT))).toList()
+            : Arrays.asList(Stack.values());
+        var dbLatency = DurationStyle.detectAndParse(options.containsKey("db-latency") ? options.remove("db-latency") : "5ms");
+        var pool = options.containsKey("pool") ? options.remove("pool") : "10";
+        options.putIfAbsent("mix", "place=50,search=50");
+        var reportDirectory = Path.of(options.getOrDefault("report", "target/stacks"));
+
+        var database = new InetSocketAddress(System.getenv().getOrDefault("POSTGRES_HOST", "localhost"), 5432);
+        var reports = new LinkedHashMap<Stack, Path>();
+        try (var proxy = new LatencyProxy(database, dbLatency)) {
+            for (var stack : stacks) {
+                System.out.println("=== " + stack.name().toLowerCase(Locale.ROOT) + ", database " + dbLatency.toMillis() + " ms away");
+                var properties = new HashMap<String, Object>(Map.of(
+                    "spring.threads.virtual.enabled", stack.virtualThreads,
+                    "spring.datasource.url", "jdbc:postgresql://localhost:" + proxy.port() + "/orders?reWriteBatchedInserts=true",
+                    "spring.datasource.hikari.maximum-pool-size", pool,
+                    "spring.r2dbc.url", "r2dbc:postgresql://localhost:" + proxy.port() + "/orders",
+                    "spring.r2dbc.pool.max-size", pool,
+                    "app.session.mode", "token",
+                    "app.session.token.secret", TOKEN_SECRET,
+                    "app.search-cache.enabled", "false",
+                    "app.slow-query-log.sample-rate", "0"
+                ));
+                if (stack.reactive) {
+                    properties.put("spring.profiles.active", "reactive");
+                }
+
+                try (var context = BenchmarkApplication.start(properties)) {
+                    var stackOptions = new HashMap<>(options);
+                    stackOptions.put("url", "http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+
+                    var generator = new LoadGenerator(stackOptions);
+                    generator.run();
+                    reports.put(stack, generator.report(reportDirectory.resolve(stack.name().toLowerCase(Locale.ROOT))));
+                }
+            }
+        }
+
+        reports.forEach((stack, report) -> System.out.println(stack.name().toLowerCase(Locale.ROOT) + ": " + report.resolve("summary.md")));
+    }
+}
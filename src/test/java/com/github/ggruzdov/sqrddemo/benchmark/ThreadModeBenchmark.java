@@ -0,0 +1,67 @@
+package com.github.ggruzdov.sqrddemo.benchmark;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Runs the {@link LoadGenerator} against the application served on platform threads and on virtual threads,
+ * the latter with and without the database admission limiter. Every mode gets a fresh application on the same
+ * database and the same load options. Blocking on Postgres shows best with more users than Tomcat threads(200),
+ * e.g. {@code users=400}, and a rate above what the pool can serve.
+ * <p>
+ * Run with {@code -Dbenchmark.main=com.github.ggruzdov.sqrddemo.benchmark.ThreadModeBenchmark
+ * -Dbenchmark.args="rate=800 users=400 duration=60s"}, {@code modes=platform,virtual} runs some of the modes only,
+ * the other options are passed to the load generator. A report per mode is saved to {@code target/thread-modes}.
+ */
+public class ThreadModeBenchmark {
+
+    enum Mode {
+        PLATFORM(false, true),
+        VIRTUAL(true, true),
+        // Every request waits for a connection in the pool, however many there are
+        VIRTUAL_UNLIMITED(true, false);
+
+        private final boolean virtualThreads;
+        private final boolean admission;
+
+        Mode(boolean virtualThreads, boolean admission) {
+            this.virtualThreads = virtualThreads;
+            this.admission = admission;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        var options = new HashMap<String, String>();
+        for (var arg : args) {
+            var parts = arg.split("=", 2);
+            options.put(parts[0], parts[1]);
+        }
+        var modes = options.containsKey("modes")
+            ? Arrays.stream(options.remove("modes").split(",")).map(mode -> Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT))).toList()
+            : Arrays.asList(Mode.values());
+        var reportDirectory = Path.of(options.getOrDefault("report", "target/thread-modes"));
+
+        var reports = new LinkedHashMap<Mode, Path>();
+        for (var mode : modes) {
+            System.out.println("=== " + mode.name().toLowerCase(Locale.ROOT));
+            try (var context = BenchmarkApplication.start(Map.of(
+                "spring.threads.virtual.enabled", mode.virtualThreads,
+                "app.db-admission.enabled", mode.admission,
+                "app.slow-query-log.sample-rate", "0"
+            ))) {
+                var modeOptions = new HashMap<>(options);
+                modeOptions.put("url", "http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+
+                var generator = new LoadGenerator(modeOptions);
+                generator.run();
+                reports.put(mode, generator.report(reportDirectory.resolve(mode.name().toLowerCase(Locale.ROOT))));
+            }
+        }
+
+        reports.forEach((mode, report) -> System.out.println(mode.name().toLowerCase(Locale.ROOT) + ": " + report.resolve("summary.md")));
+    }
+}